@@ -0,0 +1,190 @@
+package inventairePackage.bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Small benchmark harness. An operation is run a few times to let the JIT compile it, then measured over several
+ * iterations. The time of each iteration is divided by the number of operations it does, and the mean and the standard
+ * deviation are reported in nanoseconds per operation. When the JVM counts the memory allocated by each thread, the
+ * bytes allocated by the thread of the benchmark are reported by operation as well (the other threads are not
+ * counted).
+ */
+public class Benchmark
+{
+	/**
+	 * Code to measure.
+	 */
+	public static abstract class Operation
+	{
+		/**
+		 * Prepare an iteration, not measured.
+		 *
+		 * @throws Exception
+		 */
+		public void prepare() throws Exception
+		{
+		}
+
+		/**
+		 * Run one measured iteration.
+		 *
+		 * @return Object A result computed by the iteration, kept so the JIT can't remove the work.
+		 * @throws Exception
+		 */
+		public abstract Object run() throws Exception;
+	}
+
+	/**
+	 * Result of a benchmark.
+	 */
+	public static class Result
+	{
+		private final String name;
+		private final double nanosPerOperation;
+		private final double standardDeviation;
+		private final double bytesPerOperation;
+
+		private Result(String name, double nanosPerOperation, double standardDeviation, double bytesPerOperation)
+		{
+			this.name = name;
+			this.nanosPerOperation = nanosPerOperation;
+			this.standardDeviation = standardDeviation;
+			this.bytesPerOperation = bytesPerOperation;
+		}
+
+		/**
+		 * @return String Name of the benchmark.
+		 */
+		public String getName()
+		{
+			return name;
+		}
+
+		/**
+		 * @return double Mean time of an operation in nanoseconds.
+		 */
+		public double getNanosPerOperation()
+		{
+			return nanosPerOperation;
+		}
+
+		/**
+		 * @return double Standard deviation of the time of an operation in nanoseconds.
+		 */
+		public double getStandardDeviation()
+		{
+			return standardDeviation;
+		}
+
+		/**
+		 * @return double Bytes allocated by an operation on the thread of the benchmark, -1 if the JVM doesn't count
+		 *         them.
+		 */
+		public double getBytesPerOperation()
+		{
+			return bytesPerOperation;
+		}
+
+		@Override
+		public String toString()
+		{
+			String result = String.format("%-40s %14.1f ns/op  ± %6.1f %%  %14.0f ops/s", name, nanosPerOperation,
+					nanosPerOperation == 0 ? 0 : 100 * standardDeviation / nanosPerOperation, 1e9 / nanosPerOperation);
+			if (bytesPerOperation >= 0) {
+				result += String.format("  %12.1f B/op", bytesPerOperation);
+			}
+			return result;
+		}
+	}
+
+	// Receives the results of the operations
+	private static volatile int sink;
+
+	private final int warmupIterations;
+	private final int measuredIterations;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param warmupIterations
+	 *            Iterations run before the measure.
+	 * @param measuredIterations
+	 *            Iterations measured.
+	 */
+	public Benchmark(int warmupIterations, int measuredIterations)
+	{
+		this.warmupIterations = warmupIterations;
+		this.measuredIterations = measuredIterations;
+	}
+
+	/**
+	 * Measure an operation and print its result.
+	 *
+	 * @param name
+	 *            Name of the benchmark.
+	 * @param operationsPerIteration
+	 *            Number of operations done by one iteration.
+	 * @param operation
+	 *            The operation.
+	 * @return Result The result.
+	 * @throws Exception
+	 *             The operation failed.
+	 */
+	public Result measure(String name, long operationsPerIteration, Operation operation) throws Exception
+	{
+		for (int i = 0; i < warmupIterations; ++i) {
+			operation.prepare();
+			consume(operation.run());
+		}
+
+		double[] nanos = new double[measuredIterations];
+		long allocated = 0;
+		for (int i = 0; i < measuredIterations; ++i) {
+			operation.prepare();
+			long allocatedBefore = allocatedBytes();
+			long start = System.nanoTime();
+			Object result = operation.run();
+			nanos[i] = (double) (System.nanoTime() - start) / Math.max(1, operationsPerIteration);
+			allocated += allocatedBytes() - allocatedBefore;
+			consume(result);
+		}
+
+		double mean = 0;
+		for (double value : nanos) {
+			mean += value;
+		}
+		mean /= nanos.length;
+		double variance = 0;
+		for (double value : nanos) {
+			variance += (value - mean) * (value - mean);
+		}
+		double bytes = allocatedBytes() < 0 ? -1 : (double) allocated / measuredIterations
+				/ Math.max(1, operationsPerIteration);
+		Result result = new Result(name, mean, Math.sqrt(variance / Math.max(1, nanos.length - 1)), bytes);
+		System.out.println(result);
+		return result;
+	}
+
+	/**
+	 * Get the bytes allocated by the current thread since it started.
+	 *
+	 * @return long Number of bytes, -1 if the JVM doesn't count them.
+	 */
+	public static long allocatedBytes()
+	{
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+			if (counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled()) {
+				return counter.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	private static void consume(Object result)
+	{
+		sink += result == null ? 0 : result.hashCode();
+	}
+}
@@ -0,0 +1,398 @@
+package inventairePackage.bench;
+
+import inventairePackage.CardColumns;
+import inventairePackage.Carte;
+import inventairePackage.Joueur;
+import inventairePackage.StorageInventoryService;
+import inventairePackage.exceptions.MalformedStorageException;
+import inventairePackage.storage.LazyTextStorageFormat;
+import inventairePackage.storage.LoadProgress;
+import inventairePackage.storage.PlayerConsumer;
+import inventairePackage.storage.StorageFormat;
+import inventairePackage.storage.TextStorageFormat;
+import inventairePackage.utils.Logs;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Benchmarks of the paths the inventory depends on, over generated inventories: loading and saving the storage file,
+ * writing a player in the storage format, finding a player by his key, adding a card to a player, comparing players by
+ * name, counting the cards of a range of years and logging with FINE disabled.
+ *
+ * Usage: InventoryBenchmarks [players...], 1000, 100000 and 1000000 players by default.
+ */
+public class InventoryBenchmarks
+{
+	private static final int MAX_CARDS = 5;
+	private static final long SEED = 287;
+	private static final int LOOKUPS = 100000;
+	private static final int COMPARISONS = 1000000;
+	private static final int FROM_YEAR = 1990;
+	private static final int TO_YEAR = 1999;
+	// Enough calls for the few bytes allocated by the measure itself to be spread to nothing
+	private static final int LOG_CALLS = 1000000;
+	private static final double MAX_MEASURE_BYTES_PER_OPERATION = 0.01;
+
+	private final int numberOfPlayers;
+	private final File directory;
+	private final File storageFile;
+	private final Benchmark benchmark;
+	private List<Joueur> players;
+
+	private InventoryBenchmarks(int numberOfPlayers, File directory)
+	{
+		this.numberOfPlayers = numberOfPlayers;
+		this.directory = directory;
+		this.storageFile = new File(directory, "Storage" + numberOfPlayers + TextStorageFormat.EXTENSION);
+		// Fewer iterations for the big inventories, each one is long enough to be measured
+		int iterations = numberOfPlayers >= 1000000 ? 3 : numberOfPlayers >= 100000 ? 5 : 20;
+		this.benchmark = new Benchmark(iterations, iterations);
+	}
+
+	private void run() throws Exception
+	{
+		System.out.println();
+		System.out.println("=== " + numberOfPlayers + " joueurs ===");
+		StorageGenerator.generate(storageFile, numberOfPlayers, MAX_CARDS, SEED);
+		players = load(new TextStorageFormat(), storageFile);
+
+		benchmarkLoad();
+		benchmarkSave();
+		benchmarkToCSVEntryFormat();
+		benchmarkFindByCle();
+		benchmarkAddCarte();
+		benchmarkCompareTo();
+		benchmarkCountByYear();
+		benchmarkDisabledLogging();
+	}
+
+	private void benchmarkLoad() throws Exception
+	{
+		final StorageFormat format = new TextStorageFormat();
+		benchmark.measure("load (TextStorageFormat)", numberOfPlayers, new Benchmark.Operation() {
+			@Override
+			public Object run() throws Exception
+			{
+				return load(format, storageFile);
+			}
+		});
+
+		// The whole opening of the inventory: load, indexes and journal
+		final String name = storageFile.getPath().substring(0,
+				storageFile.getPath().length() - TextStorageFormat.EXTENSION.length());
+		benchmark.measure("loadPlayersFromStorage (service)", numberOfPlayers, new Benchmark.Operation() {
+			@Override
+			public Object run() throws Exception
+			{
+				StorageInventoryService service = new StorageInventoryService(name, format);
+				int size = service.list().size();
+				service.close();
+				return size;
+			}
+		});
+	}
+
+	private void benchmarkSave() throws Exception
+	{
+		final File target = new File(directory, "Save" + numberOfPlayers + TextStorageFormat.EXTENSION);
+		benchmark.measure("savePlayersToStorage", numberOfPlayers, new Benchmark.Operation() {
+			@Override
+			public Object run() throws Exception
+			{
+				StorageInventoryService.savePlayersToStorage(new TextStorageFormat(), target, players);
+				return target.length();
+			}
+		});
+	}
+
+	private void benchmarkToCSVEntryFormat() throws Exception
+	{
+		benchmark.measure("Joueur.toCSVEntryFormat", numberOfPlayers, new Benchmark.Operation() {
+			@Override
+			public Object run()
+			{
+				long length = 0;
+				for (Joueur player : players) {
+					length += player.toCSVEntryFormat().length();
+				}
+				return length;
+			}
+		});
+	}
+
+	private void benchmarkFindByCle() throws Exception
+	{
+		final String name = storageFile.getPath().substring(0,
+				storageFile.getPath().length() - TextStorageFormat.EXTENSION.length());
+		final StorageInventoryService service = new StorageInventoryService(name, new TextStorageFormat());
+		final String[] keys = new String[LOOKUPS];
+		Random random = new Random(SEED);
+		for (int i = 0; i < keys.length; ++i) {
+			// One lookup out of ten is for a key that doesn't exist
+			keys[i] = i % 10 == 0 ? "absent" + i : players.get(random.nextInt(players.size())).getCle();
+		}
+		try {
+			benchmark.measure("findByCle (showInfoPlayer)", LOOKUPS, new Benchmark.Operation() {
+				@Override
+				public Object run()
+				{
+					int found = 0;
+					for (String cle : keys) {
+						if (service.findByCle(cle) != null) {
+							++found;
+						}
+					}
+					return found;
+				}
+			});
+		} finally {
+			service.close();
+		}
+	}
+
+	private void benchmarkAddCarte() throws Exception
+	{
+		final Carte[] cards = new Carte[numberOfPlayers];
+		Random random = new Random(SEED);
+		for (int i = 0; i < cards.length; ++i) {
+			cards[i] = new Carte("Titre " + random.nextInt(50), "Équipe " + random.nextInt(30), 1950 + random
+					.nextInt(75));
+		}
+		final List<Joueur> copies = new ArrayList<Joueur>(numberOfPlayers);
+		benchmark.measure("Joueur.addCarte", numberOfPlayers, new Benchmark.Operation() {
+			@Override
+			public void prepare()
+			{
+				copies.clear();
+				for (Joueur player : players) {
+					copies.add(new Joueur(player));
+				}
+			}
+
+			@Override
+			public Object run() throws Exception
+			{
+				for (int i = 0; i < cards.length; ++i) {
+					copies.get(i).addCarte(cards[i]);
+				}
+				return copies.get(0).getNombreCartes();
+			}
+		});
+	}
+
+	private void benchmarkCompareTo() throws Exception
+	{
+		final Joueur[] left = new Joueur[COMPARISONS];
+		final Joueur[] right = new Joueur[COMPARISONS];
+		Random random = new Random(SEED);
+		for (int i = 0; i < COMPARISONS; ++i) {
+			left[i] = players.get(random.nextInt(players.size()));
+			right[i] = players.get(random.nextInt(players.size()));
+		}
+		benchmark.measure("Joueur.compareTo", COMPARISONS, new Benchmark.Operation() {
+			@Override
+			public Object run()
+			{
+				int sum = 0;
+				for (int i = 0; i < COMPARISONS; ++i) {
+					sum += left[i].compareTo(right[i]);
+				}
+				return sum;
+			}
+		});
+
+		final List<Joueur> shuffled = new ArrayList<Joueur>(players);
+		benchmark.measure("sort by name (Collections.sort)", numberOfPlayers, new Benchmark.Operation() {
+			@Override
+			public void prepare()
+			{
+				Collections.shuffle(shuffled, new Random(SEED));
+			}
+
+			@Override
+			public Object run()
+			{
+				Collections.sort(shuffled);
+				return shuffled.get(0);
+			}
+		});
+	}
+
+	/**
+	 * Count the cards of a range of years through the objects, through the columns and through a lazy inventory, whose
+	 * searches use the columns.
+	 */
+	private void benchmarkCountByYear() throws Exception
+	{
+		int numberOfCards = 0;
+		for (Joueur player : players) {
+			numberOfCards += player.getNombreCartes();
+		}
+		benchmark.measure("countByYear (Joueur.getCartes)", numberOfCards, new Benchmark.Operation() {
+			@Override
+			public Object run()
+			{
+				long count = 0;
+				for (Joueur player : players) {
+					for (Carte carte : player.getCartes()) {
+						if (carte.getAnneeSortie() >= FROM_YEAR && carte.getAnneeSortie() <= TO_YEAR) {
+							++count;
+						}
+					}
+				}
+				return count;
+			}
+		});
+
+		benchmark.measure("CardColumns.build", numberOfCards, new Benchmark.Operation() {
+			@Override
+			public Object run()
+			{
+				return CardColumns.build(players).getNombreCartes();
+			}
+		});
+		final CardColumns columns = CardColumns.build(players);
+		benchmark.measure("countByYear (CardColumns)", numberOfCards, new Benchmark.Operation() {
+			@Override
+			public Object run()
+			{
+				return columns.countByYear(FROM_YEAR, TO_YEAR);
+			}
+		});
+
+		// The first iteration reads the cards from the file and builds the columns, the next ones only scan them
+		final String name = storageFile.getPath().substring(0,
+				storageFile.getPath().length() - TextStorageFormat.EXTENSION.length());
+		final StorageInventoryService service = new StorageInventoryService(name, new LazyTextStorageFormat(
+				LazyTextStorageFormat.DEFAULT_CACHED_CARDS));
+		try {
+			benchmark.measure("countCartesByYear -lazy (service)", numberOfCards, new Benchmark.Operation() {
+				@Override
+				public Object run()
+				{
+					return service.countCartesByYear(FROM_YEAR, TO_YEAR);
+				}
+			});
+		} finally {
+			service.close();
+		}
+	}
+
+	/**
+	 * Measure the logging of the load path with FINE disabled, and check that it allocates nothing.
+	 */
+	private void benchmarkDisabledLogging() throws Exception
+	{
+		final Logger logger = Logger.getLogger("InventoryManager");
+		Level level = logger.getLevel();
+		logger.setLevel(Level.INFO);
+		final String[] lines = new String[numberOfPlayers];
+		for (int i = 0; i < lines.length; ++i) {
+			lines[i] = players.get(i).toCSVEntryFormat();
+		}
+		try {
+			benchmark.measure("logger.fine(\"...\" + line) at INFO", LOG_CALLS, new Benchmark.Operation() {
+				@Override
+				public Object run()
+				{
+					for (int i = 0; i < LOG_CALLS; ++i) {
+						logger.fine("Read line : " + lines[i % lines.length]);
+					}
+					return LOG_CALLS;
+				}
+			});
+			Benchmark.Result guarded = benchmark.measure("Logs.fine at INFO", LOG_CALLS, new Benchmark.Operation() {
+				@Override
+				public Object run()
+				{
+					for (int i = 0; i < LOG_CALLS; ++i) {
+						Logs.fine(logger, "Read line : %s", lines[i % lines.length]);
+					}
+					return LOG_CALLS;
+				}
+			});
+			final LoadProgress progress = new LoadProgress(logger, storageFile, new PlayerConsumer() {
+				@Override
+				public void accept(Joueur player, int lineNumber)
+				{
+				}
+			});
+			Benchmark.Result reported = benchmark.measure("LoadProgress.accept at INFO", LOG_CALLS,
+					new Benchmark.Operation() {
+						@Override
+						public Object run() throws Exception
+						{
+							for (int i = 0; i < LOG_CALLS; ++i) {
+								progress.accept(players.get(i % numberOfPlayers), i + 1);
+							}
+							return progress.getRecords();
+						}
+					});
+			requireNoAllocation(guarded);
+			requireNoAllocation(reported);
+		} finally {
+			logger.setLevel(level);
+		}
+	}
+
+	/**
+	 * Fail if an operation allocates, beyond the few bytes of the measure itself.
+	 */
+	private static void requireNoAllocation(Benchmark.Result result)
+	{
+		if (result.getBytesPerOperation() > MAX_MEASURE_BYTES_PER_OPERATION) {
+			throw new IllegalStateException(String.format("'%s' allocates %.2f bytes per operation.", result
+					.getName(), result.getBytesPerOperation()));
+		}
+	}
+
+	private static List<Joueur> load(StorageFormat format, File file) throws Exception
+	{
+		final List<Joueur> loaded = new ArrayList<Joueur>();
+		format.load(file, new PlayerConsumer() {
+			@Override
+			public void accept(Joueur player, int lineNumber) throws MalformedStorageException
+			{
+				loaded.add(player);
+			}
+		});
+		return loaded;
+	}
+
+	/**
+	 * Main function.
+	 *
+	 * @param args
+	 *            Sizes of the inventories, in number of players.
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		int[] sizes = { 1000, 100000, 1000000 };
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; ++i) {
+				sizes[i] = Integer.parseInt(args[i]);
+			}
+		}
+
+		File directory = Files.createTempDirectory("inventaire-bench").toFile();
+		try {
+			for (int size : sizes) {
+				new InventoryBenchmarks(size, directory).run();
+			}
+		} finally {
+			for (File file : directory.listFiles()) {
+				file.delete();
+			}
+			directory.delete();
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package inventairePackage.bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Write a storage file in the text format (like Storage.txt) with generated players and cards. The same seed always
+ * gives the same file.
+ */
+public class StorageGenerator
+{
+	private static final String[] FIRST_NAMES = { "Alex", "Derek", "Roger", "Érika", "Félix", "Tommy", "Mariano",
+			"José", "Ichiro", "Mickey", "Hank", "Ted", "Jackie", "Willie", "Sandy", "Randy", "Pedro", "Ken", "Cal",
+			"Yogi" };
+	private static final String[] LAST_NAMES = { "Rodriguez", "Jeter", "Clemens", "Demers", "Hamel", "Lepage-Méthot",
+			"Rivera", "Bautista", "Suzuki", "Mantle", "Aaron", "Williams", "Robinson", "Mays", "Koufax", "Johnson",
+			"Martínez", "Griffey", "Ripken", "Berra", "Jeterson", "Côté" };
+	private static final String[] TEAMS = { "New York, Yankees", "Boston, Red Sox", "Seattle, Mariners",
+			"Montréal, Expos", "Toronto, Blue Jays", "Chicago, Cubs", "Los Angeles, Dodgers", "St. Louis, Cardinals",
+			"Atlanta, Braves", "Houston, Astros", "Detroit, Tigers", "Oakland, Athletics", "San Francisco, Giants",
+			"Cleveland, Guardians", "Philadelphia, Phillies" };
+	private static final String[] TITLES = { "Rookie years", "The capitan", "The Cy Young", "All-Star",
+			"\"The magic years\"", "World Series", "Golden Glove", "MVP", "Hall of Fame", "Home run king", "Série mondiale",
+			"Base card" };
+
+	/**
+	 * Write a storage file.
+	 *
+	 * @param file
+	 *            File to write, replaced if it exists.
+	 * @param numberOfPlayers
+	 *            Number of players.
+	 * @param maxCards
+	 *            Maximum number of cards of a player, each player has between 0 and maxCards cards.
+	 * @param seed
+	 *            Seed of the random values.
+	 * @throws IOException
+	 */
+	public static void generate(File file, int numberOfPlayers, int maxCards, long seed) throws IOException
+	{
+		Random random = new Random(seed);
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file),
+				StandardCharsets.UTF_8), 1024 * 1024)) {
+			for (int i = 0; i < numberOfPlayers; ++i) {
+				String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+				String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+				writeField(writer, lastName.toLowerCase().replace(' ', '-') + i);
+				writeField(writer, firstName + " " + lastName);
+				int cards = random.nextInt(maxCards + 1);
+				writeField(writer, Integer.toString(cards));
+				for (int card = 0; card < cards; ++card) {
+					writeField(writer, TITLES[random.nextInt(TITLES.length)]);
+					writeField(writer, TEAMS[random.nextInt(TEAMS.length)]);
+					writeField(writer, Integer.toString(1950 + random.nextInt(75)));
+				}
+				writer.write('\n');
+			}
+		}
+	}
+
+	private static void writeField(Writer writer, String value) throws IOException
+	{
+		writer.write('"');
+		writer.write(value.replace("\"", "\"\""));
+		writer.write("\";");
+	}
+
+	/**
+	 * Main function.
+	 *
+	 * @param args
+	 *            file players [maxCards [seed]], 5 cards and seed 287 by default.
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length < 2) {
+			System.err.println("Usage : StorageGenerator fichier joueurs [cartesMax [graine]]");
+			System.exit(1);
+		}
+		int numberOfPlayers = Integer.parseInt(args[1]);
+		int maxCards = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+		long seed = args.length > 3 ? Long.parseLong(args[3]) : 287;
+		generate(new File(args[0]), numberOfPlayers, maxCards, seed);
+		System.out.println(numberOfPlayers + " joueurs écrits dans " + args[0] + ".");
+	}
+}
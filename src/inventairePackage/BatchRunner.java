@@ -0,0 +1,230 @@
+package inventairePackage;
+
+import inventairePackage.exceptions.DuplicatePlayerException;
+import inventairePackage.exceptions.FailedToSaveInventoryException;
+import inventairePackage.exceptions.InvalidParameterException;
+import inventairePackage.exceptions.MalformedStorageException;
+import inventairePackage.exceptions.PlayerNotFoundException;
+import inventairePackage.storage.StorageReader;
+import inventairePackage.storage.StorageTokenizer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Run commands on the inventory without asking anything to the user. There is one command per line, with its fields
+ * separated by ';' and quoted like in the storage file:
+ *
+ * <pre>
+ * add;"cle";"nom";n;"titre";"equipe";annee;...      Add a player with his n cards
+ * update;"cle";"nom";n;"titre";"equipe";annee;...   Change the name of a player and add n cards to him
+ * show;"cle"                                         Write a player in the storage format
+ * delete;"cle"                                       Delete a player
+ * list                                               Write all the players in the storage format
+ * save                                               Save the changes, in the background outside a session
+ * </pre>
+ *
+ * A command that fails is reported with its line and the next commands are still run. The output is buffered and the
+ * inventory is saved once, when the caller closes it.
+ *
+ * In a session, every command is answered as soon as it is run: its output is followed by a line "OK", or the error
+ * is written on a line starting with "ERREUR", and the output is flushed.
+ */
+public class BatchRunner
+{
+	private final InventoryService service;
+	private final Writer output;
+	private final boolean session;
+	private int succeeded = 0;
+	private int failed = 0;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param service
+	 *            The inventory.
+	 * @param output
+	 *            Where the results and the errors are written, it should be buffered.
+	 */
+	public BatchRunner(InventoryService service, Writer output)
+	{
+		this(service, output, false);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param service
+	 *            The inventory.
+	 * @param output
+	 *            Where the results and the errors are written, it should be buffered.
+	 * @param session
+	 *            true to answer every command as soon as it is run, without summary at the end.
+	 */
+	public BatchRunner(InventoryService service, Writer output, boolean session)
+	{
+		this.service = service;
+		this.output = output;
+		this.session = session;
+	}
+
+	/**
+	 * Run all the commands.
+	 *
+	 * @param commands
+	 *            The commands, one per line.
+	 * @throws IOException
+	 *             Failed to read the commands or to write the output.
+	 */
+	public void run(Reader commands) throws IOException
+	{
+		long start = System.nanoTime();
+		StorageTokenizer tokenizer = new StorageTokenizer(commands);
+		while (true) {
+			try {
+				if (!tokenizer.nextRecord()) {
+					break;
+				}
+				runCommand(tokenizer);
+				++succeeded;
+				if (session) {
+					output.write("OK\n");
+					output.flush();
+				}
+			} catch (MalformedStorageException e) {
+				reportError(e.getLineNumber(), e.getReason());
+			} catch (InvalidParameterException
+					| DuplicatePlayerException
+					| PlayerNotFoundException
+					| FailedToSaveInventoryException e) {
+				reportError(tokenizer.getRecordLineNumber(), e.getMessage());
+			} catch (UncheckedIOException e) {
+				// Cards loaded lazily that couldn't be read, or a change that couldn't be written
+				reportError(tokenizer.getRecordLineNumber(), e.getCause().getMessage());
+			}
+		}
+
+		if (session) {
+			return;
+		}
+		double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+		output.write(String.format("%d commandes exécutées, %d en erreur, en %.3f s (%.0f commandes/s).%n", succeeded,
+				failed, seconds, (succeeded + failed) / seconds));
+	}
+
+	/**
+	 * Get the number of commands run without error.
+	 *
+	 * @return int Number of commands.
+	 */
+	public int getNombreSucces()
+	{
+		return succeeded;
+	}
+
+	/**
+	 * Get the number of commands that failed.
+	 *
+	 * @return int Number of commands.
+	 */
+	public int getNombreErreurs()
+	{
+		return failed;
+	}
+
+	/**
+	 * Run the command of the current record.
+	 */
+	private void runCommand(StorageTokenizer tokenizer)
+			throws IOException,
+				MalformedStorageException,
+				InvalidParameterException,
+				DuplicatePlayerException,
+				PlayerNotFoundException,
+				FailedToSaveInventoryException
+	{
+		String command = tokenizer.nextString();
+		switch (command) {
+			case "add": {
+				Joueur joueur = StorageReader.readPlayerFields(tokenizer);
+				requireEnd(tokenizer);
+				service.addPlayer(joueur);
+				break;
+			}
+			case "update": {
+				Joueur values = StorageReader.readPlayerFields(tokenizer);
+				requireEnd(tokenizer);
+				Joueur joueur = requirePlayer(values.getCle());
+				if (!joueur.getNomJoueur().equals(values.getNomJoueur())) {
+					service.updateName(values.getCle(), values.getNomJoueur());
+				}
+				service.addCards(values.getCle(), values.getCartes());
+				break;
+			}
+			case "show": {
+				String cle = tokenizer.nextString();
+				requireEnd(tokenizer);
+				requirePlayer(cle).appendCSVEntry(output);
+				output.write('\n');
+				break;
+			}
+			case "delete": {
+				String cle = tokenizer.nextString();
+				requireEnd(tokenizer);
+				service.delete(cle);
+				break;
+			}
+			case "list":
+				requireEnd(tokenizer);
+				for (Joueur joueur : service.list()) {
+					joueur.appendCSVEntry(output);
+					output.write('\n');
+				}
+				break;
+			case "save":
+				requireEnd(tokenizer);
+				if (session) {
+					// The client is told the changes are safe only once they are on the disk
+					service.save();
+				} else {
+					service.saveAsync();
+				}
+				break;
+			default:
+				throw new InvalidParameterException("commande", "'" + command + "' is not a command");
+		}
+	}
+
+	/**
+	 * Check that the command has no more fields, before it changes anything.
+	 */
+	private static void requireEnd(StorageTokenizer tokenizer) throws IOException, MalformedStorageException
+	{
+		if (tokenizer.hasMoreFields()) {
+			throw new MalformedStorageException(tokenizer.getRecordLineNumber(), "too many fields for the command");
+		}
+	}
+
+	private Joueur requirePlayer(String cle) throws PlayerNotFoundException
+	{
+		Joueur joueur = service.findByCle(cle);
+		if (joueur == null) {
+			throw new PlayerNotFoundException(cle);
+		}
+		return joueur;
+	}
+
+	private void reportError(int lineNumber, String message) throws IOException
+	{
+		++failed;
+		if (session) {
+			output.write("ERREUR ");
+		}
+		output.write("Ligne " + lineNumber + " : " + message + '\n');
+		if (session) {
+			output.flush();
+		}
+	}
+}
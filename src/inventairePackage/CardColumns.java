@@ -0,0 +1,234 @@
+package inventairePackage;
+
+import inventairePackage.utils.StringDictionary;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only columnar copy of all the cards of the inventory, made for scans over the whole inventory. Each column is
+ * an array of primitives indexed by the position of the card: the year, the id of the team and the id of the title in
+ * the dictionary of the cards. The cards of a player are contiguous, the player i owns the cards from ownerOffsets[i]
+ * to ownerOffsets[i + 1].
+ *
+ * The columns are a snapshot, they must be built again after the inventory changes. The cards of a player can be read
+ * through a view on the columns, the cards are then created when they are read.
+ */
+public class CardColumns
+{
+	private final StringDictionary dictionary;
+	private final Joueur[] owners;
+	private final int[] ownerOffsets;
+	private final int[] years;
+	private final int[] teamIds;
+	private final int[] titleIds;
+
+	private CardColumns(List<Joueur> players)
+	{
+		// The dictionary belongs to the columns, it is dropped with them
+		dictionary = new StringDictionary();
+		owners = players.toArray(new Joueur[players.size()]);
+		ownerOffsets = new int[owners.length + 1];
+
+		int numberOfCards = 0;
+		for (int i = 0; i < owners.length; ++i) {
+			ownerOffsets[i] = numberOfCards;
+			numberOfCards += owners[i].getNombreCartes();
+		}
+		ownerOffsets[owners.length] = numberOfCards;
+
+		years = new int[numberOfCards];
+		teamIds = new int[numberOfCards];
+		titleIds = new int[numberOfCards];
+		int card = 0;
+		for (Joueur owner : owners) {
+			for (Carte carte : owner.getCartes()) {
+				years[card] = carte.getAnneeSortie();
+				teamIds[card] = dictionary.idOf(carte.getNomEquipe());
+				titleIds[card] = dictionary.idOf(carte.getTitreCarte());
+				++card;
+			}
+		}
+	}
+
+	/**
+	 * Build the columns from the players and their cards.
+	 *
+	 * @param players
+	 *            Players of the inventory, their order is kept.
+	 * @return CardColumns The columns.
+	 */
+	public static CardColumns build(List<Joueur> players)
+	{
+		return new CardColumns(players);
+	}
+
+	/**
+	 * Get the number of cards.
+	 *
+	 * @return int Number of cards in the columns.
+	 */
+	public int getNombreCartes()
+	{
+		return years.length;
+	}
+
+	/**
+	 * Get the number of players.
+	 *
+	 * @return int Number of players in the columns.
+	 */
+	public int getNombreJoueurs()
+	{
+		return owners.length;
+	}
+
+	/**
+	 * Count the cards published between two years.
+	 *
+	 * @param fromYear
+	 *            First year, included.
+	 * @param toYear
+	 *            Last year, included.
+	 * @return int Number of cards.
+	 */
+	public int countByYear(int fromYear, int toYear)
+	{
+		// Without branch in the loop so the JIT can vectorize it
+		int count = 0;
+		for (int i = 0; i < years.length; ++i) {
+			int year = years[i];
+			count += (year >= fromYear & year <= toYear) ? 1 : 0;
+		}
+		return count;
+	}
+
+	/**
+	 * Find the players who have at least one card published between two years.
+	 *
+	 * @param fromYear
+	 *            First year, included.
+	 * @param toYear
+	 *            Last year, included.
+	 * @return List<Joueur> The players, in the order of the inventory.
+	 */
+	public List<Joueur> findPlayersByYear(int fromYear, int toYear)
+	{
+		List<Joueur> found = new ArrayList<Joueur>();
+		for (int player = 0; player < owners.length; ++player) {
+			for (int i = ownerOffsets[player]; i < ownerOffsets[player + 1]; ++i) {
+				if (years[i] >= fromYear && years[i] <= toYear) {
+					found.add(owners[player]);
+					break;
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Find the players who have at least one card of a team.
+	 *
+	 * @param nomEquipe
+	 *            Name of the team.
+	 * @return List<Joueur> The players, in the order of the inventory.
+	 */
+	public List<Joueur> findPlayersByTeam(String nomEquipe)
+	{
+		List<Joueur> found = new ArrayList<Joueur>();
+		int teamId = dictionary.findId(nomEquipe);
+		if (teamId < 0) {
+			return found;
+		}
+		for (int player = 0; player < owners.length; ++player) {
+			for (int i = ownerOffsets[player]; i < ownerOffsets[player + 1]; ++i) {
+				if (teamIds[i] == teamId) {
+					found.add(owners[player]);
+					break;
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Make the players whose cards are not loaded yet read them from the columns instead of the storage file. The
+	 * columns hold the same cards, they stay valid for these players whatever changes after, because a player is
+	 * replaced by a copy when his cards change.
+	 */
+	public void shareCartes()
+	{
+		for (int player = 0; player < owners.length; ++player) {
+			owners[player].replaceLazyCards(new ColumnCards(player));
+		}
+	}
+
+	/**
+	 * Get a card from the columns.
+	 *
+	 * @param card
+	 *            Position of the card.
+	 * @return Carte The card, created from the columns.
+	 */
+	public Carte getCarte(int card)
+	{
+		return Carte.fromValidatedValues(dictionary.valueOf(titleIds[card]), dictionary.valueOf(teamIds[card]),
+				years[card]);
+	}
+
+	/**
+	 * Get the cards of a player as a view on the columns. The cards are created when they are read.
+	 *
+	 * @param player
+	 *            Position of the player.
+	 * @return List<Carte> Read-only list of the cards of the player.
+	 */
+	public List<Carte> getCartes(final int player)
+	{
+		final int start = ownerOffsets[player];
+		final int end = ownerOffsets[player + 1];
+		return new AbstractList<Carte>() {
+			@Override
+			public Carte get(int index)
+			{
+				if (index < 0 || index >= end - start) {
+					throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (end - start));
+				}
+				return getCarte(start + index);
+			}
+
+			@Override
+			public int size()
+			{
+				return end - start;
+			}
+		};
+	}
+
+	/**
+	 * Cards of a player read from the columns.
+	 */
+	private class ColumnCards implements LazyCards
+	{
+		private final int player;
+
+		private ColumnCards(int player)
+		{
+			this.player = player;
+		}
+
+		@Override
+		public int size()
+		{
+			return ownerOffsets[player + 1] - ownerOffsets[player];
+		}
+
+		@Override
+		public ArrayList<Carte> load()
+		{
+			// The columns keep the order of the cards of the player
+			return new ArrayList<Carte>(getCartes(player));
+		}
+	}
+}
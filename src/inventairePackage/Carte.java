@@ -18,6 +18,30 @@ public class Carte implements Comparable<Carte>
 		setAnneeSortie(anneeSortie);
 	}
 
+	private Carte()
+	{
+	}
+
+	/**
+	 * Create a card from values that were already validated, without checking them again.
+	 * 
+	 * @param titreCarte
+	 *            Shared instance of the title of the card.
+	 * @param nomEquipe
+	 *            Shared instance of the name of the team.
+	 * @param anneeSortie
+	 *            Year of the card.
+	 * @return Carte The card.
+	 */
+	static Carte fromValidatedValues(String titreCarte, String nomEquipe, int anneeSortie)
+	{
+		Carte card = new Carte();
+		card.titreCarte = titreCarte;
+		card.nomEquipe = nomEquipe;
+		card.anneeSortie = anneeSortie;
+		return card;
+	}
+
 	/**
 	 * Get the title of the card.
 	 * 
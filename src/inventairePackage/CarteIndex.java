@@ -0,0 +1,184 @@
+package inventairePackage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Secondary indexes on the cards of the inventory, by year and by team. Each index gives the players who have cards
+ * for a key with the number of their cards for it. The indexes are updated by Joueur.addCarte for the players
+ * attached to them.
+ *
+ * The indexes can be used from several threads, every method locks them for its whole duration.
+ */
+public class CarteIndex
+{
+	private final TreeMap<Integer, Map<Joueur, Integer>> byYear = new TreeMap<Integer, Map<Joueur, Integer>>();
+	private final HashMap<String, Map<Joueur, Integer>> byTeam = new HashMap<String, Map<Joueur, Integer>>();
+	private long numberOfCards = 0;
+
+	/**
+	 * Add all the cards of a player to the indexes and keep them updated when he gets new cards.
+	 *
+	 * @param player
+	 *            The player.
+	 */
+	public synchronized void attach(Joueur player)
+	{
+		player.setCarteIndex(this);
+		for (Carte card : player.getCartes()) {
+			add(player, card);
+		}
+	}
+
+	/**
+	 * Remove all the cards of a player from the indexes and stop following him.
+	 *
+	 * @param player
+	 *            The player.
+	 */
+	public synchronized void detach(Joueur player)
+	{
+		if (player.getCarteIndex() != this) {
+			return;
+		}
+		player.setCarteIndex(null);
+		for (Carte card : player.getCartes()) {
+			remove(byYear, card.getAnneeSortie(), player);
+			remove(byTeam, card.getNomEquipe(), player);
+			--numberOfCards;
+		}
+	}
+
+	/**
+	 * Replace a player by a new version of him in the indexes, in one operation for the searches.
+	 *
+	 * @param oldPlayer
+	 *            The player attached to the indexes.
+	 * @param newPlayer
+	 *            His new version.
+	 */
+	public synchronized void replace(Joueur oldPlayer, Joueur newPlayer)
+	{
+		detach(oldPlayer);
+		attach(newPlayer);
+	}
+
+	/**
+	 * Add a card of a player to the indexes.
+	 *
+	 * @param player
+	 *            Owner of the card.
+	 * @param card
+	 *            The card.
+	 */
+	synchronized void add(Joueur player, Carte card)
+	{
+		add(byYear, card.getAnneeSortie(), player);
+		add(byTeam, card.getNomEquipe(), player);
+		++numberOfCards;
+	}
+
+	/**
+	 * Get the number of cards in the indexes.
+	 *
+	 * @return long Number of cards.
+	 */
+	public synchronized long getNombreCartes()
+	{
+		return numberOfCards;
+	}
+
+	/**
+	 * Find the players who have cards published between two years.
+	 *
+	 * @param fromYear
+	 *            First year, included.
+	 * @param toYear
+	 *            Last year, included.
+	 * @return List<Joueur> The players, each one once.
+	 */
+	public synchronized List<Joueur> findPlayersByYear(int fromYear, int toYear)
+	{
+		if (fromYear > toYear) {
+			return new ArrayList<Joueur>();
+		}
+		NavigableMap<Integer, Map<Joueur, Integer>> years = byYear.subMap(fromYear, true, toYear, true);
+		if (years.size() == 1) {
+			return new ArrayList<Joueur>(years.firstEntry().getValue().keySet());
+		}
+		Set<Joueur> players = new LinkedHashSet<Joueur>();
+		for (Map<Joueur, Integer> playersOfYear : years.values()) {
+			players.addAll(playersOfYear.keySet());
+		}
+		return new ArrayList<Joueur>(players);
+	}
+
+	/**
+	 * Count the cards published between two years.
+	 *
+	 * @param fromYear
+	 *            First year, included.
+	 * @param toYear
+	 *            Last year, included.
+	 * @return long Number of cards.
+	 */
+	public synchronized long countCartesByYear(int fromYear, int toYear)
+	{
+		long count = 0;
+		if (fromYear <= toYear) {
+			for (Map<Joueur, Integer> playersOfYear : byYear.subMap(fromYear, true, toYear, true).values()) {
+				for (Integer cards : playersOfYear.values()) {
+					count += cards;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Find the players who have cards of a team.
+	 *
+	 * @param nomEquipe
+	 *            Name of the team.
+	 * @return List<Joueur> The players.
+	 */
+	public synchronized List<Joueur> findPlayersByTeam(String nomEquipe)
+	{
+		Map<Joueur, Integer> players = byTeam.get(nomEquipe);
+		return players == null ? new ArrayList<Joueur>() : new ArrayList<Joueur>(players.keySet());
+	}
+
+	private static <K> void add(Map<K, Map<Joueur, Integer>> index, K key, Joueur player)
+	{
+		Map<Joueur, Integer> players = index.get(key);
+		if (players == null) {
+			players = new HashMap<Joueur, Integer>();
+			index.put(key, players);
+		}
+		Integer count = players.get(player);
+		players.put(player, count == null ? 1 : count + 1);
+	}
+
+	private static <K> void remove(Map<K, Map<Joueur, Integer>> index, K key, Joueur player)
+	{
+		Map<Joueur, Integer> players = index.get(key);
+		if (players == null) {
+			return;
+		}
+		Integer count = players.get(player);
+		if (count == null || count <= 1) {
+			players.remove(player);
+			if (players.isEmpty()) {
+				index.remove(key);
+			}
+		} else {
+			players.put(player, count - 1);
+		}
+	}
+}
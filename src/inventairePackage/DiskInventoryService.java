@@ -0,0 +1,793 @@
+package inventairePackage;
+
+import inventairePackage.disk.DataFile;
+import inventairePackage.disk.KeyIndex;
+import inventairePackage.disk.PlayerCache;
+import inventairePackage.exceptions.DuplicatePlayerException;
+import inventairePackage.exceptions.FailedToCreateStorageFileException;
+import inventairePackage.exceptions.FailedToReadStorageException;
+import inventairePackage.exceptions.FailedToSaveInventoryException;
+import inventairePackage.exceptions.InvalidParameterException;
+import inventairePackage.exceptions.InvalidStorageFileNameException;
+import inventairePackage.exceptions.MalformedStorageException;
+import inventairePackage.exceptions.PlayerNotFoundException;
+import inventairePackage.metrics.CacheMetrics;
+import inventairePackage.metrics.Metrics;
+import inventairePackage.metrics.OperationMetrics;
+import inventairePackage.storage.LoadProgress;
+import inventairePackage.storage.PlayerConsumer;
+import inventairePackage.storage.SavePipeline;
+import inventairePackage.storage.SnapshotWriter;
+import inventairePackage.storage.StorageFormat;
+import inventairePackage.utils.Logs;
+import inventairePackage.utils.Strings;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Inventory kept on the disk, for the inventories bigger than the memory. The players are in a data file, found with an
+ * index of their keys kept in memory, and only the players recently used are kept decoded in a cache of a given size.
+ * A change is made in the cache; the player is written at the end of the data file when the cache drops him or when
+ * the inventory is saved. A save writes the players changed, the index and, once the old records take more space than
+ * the players, a new data file in the order of the keys.
+ *
+ * The searches read all the players from the data file, without putting them in the cache. The pages decode only the
+ * key and the name of most players, and the whole record of the players that can be in the page. The inventory can be
+ * used from many threads, one operation at a time. The changes not saved are lost if the program stops without
+ * closing the inventory, except the players already dropped from the cache.
+ */
+public class DiskInventoryService implements InventoryService
+{
+	public static final String INDEX_EXTENSION = ".idx";
+	public static final int DEFAULT_CACHE_SIZE = 10000;
+
+	private static Logger logger = Logger.getLogger("InventoryManager");
+	private static final JoueurComparateur PLAYER_COMPARATOR = new JoueurComparateur();
+	private static final OperationMetrics LOOKUP_METRICS = Metrics.get("lookup");
+	private static final OperationMetrics LOAD_METRICS = Metrics.get("storage.load");
+	private static final OperationMetrics SAVE_METRICS = Metrics.get("storage.save");
+	private static final CacheMetrics CACHE_METRICS = Metrics.getCache("disk.players");
+	// Space taken by the old records after which a save writes a new data file
+	private static final long DATA_COMPACTION_THRESHOLD = 16L * 1024 * 1024;
+	private final File indexFile;
+	private final DataFile data;
+	private final KeyIndex index;
+	private final PlayerCache cache;
+	// One operation at a time; a thread waiting for the disk under it doesn't hold the carrier of a virtual thread
+	private final ReentrantLock lock = new ReentrantLock();
+	// Size of the data file when the index was written, -1 before
+	private long indexedDataSize = -1;
+	private SavePipeline savePipeline;
+
+	/**
+	 * Constructor, opens the data file or creates it. When there is no data file yet, the players of the storage file
+	 * with the same name are copied into it.
+	 *
+	 * @param storageFileNameWithoutExtention
+	 *            Name of the files without extension.
+	 * @param importFormat
+	 *            Format of the storage file to import.
+	 * @param cacheSize
+	 *            Number of players kept in memory.
+	 * @throws InvalidStorageFileNameException
+	 * @throws FailedToCreateStorageFileException
+	 * @throws FailedToReadStorageException
+	 */
+	public DiskInventoryService(String storageFileNameWithoutExtention, StorageFormat importFormat, int cacheSize)
+			throws InvalidStorageFileNameException,
+				FailedToCreateStorageFileException,
+				FailedToReadStorageException
+	{
+		// Make sure the name given is valid
+		if (Strings.isNullOrEmpty(storageFileNameWithoutExtention)) {
+			throw new InvalidStorageFileNameException(storageFileNameWithoutExtention);
+		}
+
+		File dataFile = new File(storageFileNameWithoutExtention + DataFile.EXTENSION);
+		indexFile = new File(storageFileNameWithoutExtention + INDEX_EXTENSION);
+		File storageFile = new File(storageFileNameWithoutExtention + importFormat.getExtension());
+		boolean importing = !dataFile.exists() && storageFile.exists();
+		try {
+			data = new DataFile(dataFile);
+		} catch (IOException e) {
+			throw new FailedToCreateStorageFileException(dataFile.getPath(), e);
+		}
+		index = importing ? importStorage(importFormat, storageFile) : loadIndex();
+		// An index imported or built again is written right away, so the next start doesn't build it again
+		if (indexedDataSize != data.size()) {
+			try {
+				writeIndex();
+			} catch (IOException e) {
+				// Built again from the data file at the next start
+				logger.severe("Failed to write index. " + e.getMessage());
+			}
+		}
+		cache = new PlayerCache(cacheSize, new PlayerCache.WriteBack() {
+			@Override
+			public void write(Joueur player) throws IOException
+			{
+				long offset = data.append(player);
+				index.put(player.getCle(), offset, (int) (data.size() - offset));
+			}
+		}, CACHE_METRICS);
+		savePipeline = new SavePipeline("inventory-save", new SavePipeline.Saver() {
+			@Override
+			public void save() throws IOException
+			{
+				writeChanges();
+			}
+		});
+	}
+
+	/**
+	 * Get the data file of the inventory.
+	 *
+	 * @return File The data file.
+	 */
+	public File getStorageFile()
+	{
+		return data.getFile();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws UncheckedIOException
+	 *             The player couldn't be read from the data file.
+	 */
+	@Override
+	public Joueur findByCle(String cle)
+	{
+		lock.lock();
+		try {
+			long start = System.nanoTime();
+			Joueur player = cache.get(cle);
+			if (player == null) {
+				long[] position = index.get(cle);
+				if (position == null) {
+					LOOKUP_METRICS.record(start);
+					return null;
+				}
+				try {
+					player = data.read(position[0], (int) position[1]);
+				} catch (IOException e) {
+					LOOKUP_METRICS.recordError();
+					throw new UncheckedIOException(e);
+				}
+				try {
+					cachePlayer(player, false);
+				} catch (IOException e) {
+					LOOKUP_METRICS.recordError();
+					throw new UncheckedIOException(e);
+				}
+			}
+			LOOKUP_METRICS.record(start);
+			return player;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws UncheckedIOException
+	 *             The cache couldn't make room for the player, he was not added.
+	 */
+	@Override
+	public void addPlayer(Joueur joueur) throws DuplicatePlayerException
+	{
+		lock.lock();
+		try {
+			if (index.contains(joueur.getCle())) {
+				throw new DuplicatePlayerException(joueur.getCle());
+			}
+			// The caller keeps his player, the inventory keeps its own copy
+			Joueur player = new Joueur(joueur);
+			cachePlayer(player, true);
+			index.put(player.getCle(), KeyIndex.NOT_WRITTEN, 0);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc} The players are sorted by key, so the players to read from the data file are read in its order. A
+	 * player the cache couldn't make room for is counted as failed and is not changed.
+	 *
+	 * @throws UncheckedIOException
+	 *             A player couldn't be read from the data file, the players before him were merged.
+	 */
+	@Override
+	public MergeResult mergePlayers(List<Joueur> joueurs, DuplicatePolicy policy)
+	{
+		lock.lock();
+		try {
+			List<Joueur> sorted = new ArrayList<Joueur>(joueurs);
+			sorted.sort(new Comparator<Joueur>() {
+				@Override
+				public int compare(Joueur o1, Joueur o2)
+				{
+					return o1.getCle().compareTo(o2.getCle());
+				}
+			});
+			MergeResult result = new MergeResult();
+			for (Joueur joueur : sorted) {
+				Joueur player = new Joueur(joueur);
+				if (!index.contains(player.getCle())) {
+					if (cacheChangedPlayer(player, result)) {
+						index.put(player.getCle(), KeyIndex.NOT_WRITTEN, 0);
+						result.countAdded();
+					}
+				} else if (policy == DuplicatePolicy.REPLACE) {
+					if (cacheChangedPlayer(player, result)) {
+						result.countReplaced();
+					}
+				} else if (policy == DuplicatePolicy.MERGE) {
+					Joueur merged = new Joueur(findByCle(player.getCle()));
+					try {
+						for (Carte carte : player.getCartes()) {
+							merged.addCarte(carte);
+						}
+					} catch (InvalidParameterException e) {
+						throw new IllegalStateException("Invalid card in a valid player.", e);
+					}
+					if (cacheChangedPlayer(merged, result)) {
+						result.countMerged();
+					}
+				} else {
+					result.countSkipped();
+				}
+			}
+			return result;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws UncheckedIOException
+	 *             The player couldn't be read, or the cache couldn't make room for him; he was not changed.
+	 */
+	@Override
+	public void addCards(String cle, List<Carte> cartes)
+			throws PlayerNotFoundException,
+				InvalidParameterException
+	{
+		lock.lock();
+		try {
+			if (cartes.contains(null)) {
+				throw new InvalidParameterException("card", "cannot be null");
+			}
+			Joueur current = requirePlayer(cle);
+			if (cartes.isEmpty()) {
+				return;
+			}
+			Joueur player = new Joueur(current);
+			for (Carte carte : cartes) {
+				player.addCarte(carte);
+			}
+			cachePlayer(player, true);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws UncheckedIOException
+	 *             The player couldn't be read, or the cache couldn't make room for him; he was not changed.
+	 */
+	@Override
+	public void updateName(String cle, String nomJoueur)
+			throws PlayerNotFoundException,
+				InvalidParameterException
+	{
+		lock.lock();
+		try {
+			Joueur player = new Joueur(requirePlayer(cle));
+			player.setNomJoueur(nomJoueur);
+			cachePlayer(player, true);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc} The deletion is written to the data file before the player leaves the index, so an index built
+	 * again from the data file doesn't find him.
+	 *
+	 * @throws UncheckedIOException
+	 *             The deletion couldn't be written to the data file, the player is still in the inventory.
+	 */
+	@Override
+	public void delete(String cle) throws PlayerNotFoundException
+	{
+		lock.lock();
+		try {
+			if (!index.contains(cle)) {
+				throw new PlayerNotFoundException(cle);
+			}
+			try {
+				data.appendDeleted(cle);
+			} catch (IOException e) {
+				logger.severe("Failed to write to data file. " + e.getMessage());
+				throw new UncheckedIOException(e);
+			}
+			cache.remove(cle);
+			index.remove(cle);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc} All the players are read from the data file and kept in the list, forEachPlayer gives them
+	 * without keeping them.
+	 */
+	@Override
+	public List<Joueur> list()
+	{
+		lock.lock();
+		try {
+			final List<Joueur> players = new ArrayList<Joueur>(index.size());
+			forEachPlayer(new Consumer<Joueur>() {
+				@Override
+				public void accept(Joueur joueur)
+				{
+					players.add(joueur);
+				}
+			});
+			players.sort(PLAYER_COMPARATOR);
+			return Collections.unmodifiableList(players);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc} The players are not sorted by name on the disk, the names of all of them are read to find the
+	 * page.
+	 */
+	@Override
+	public List<Joueur> listAfter(Joueur after, int count, PlayerFilter filter)
+	{
+		lock.lock();
+		try {
+			return page(after, false, count, filter);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc} The players are not sorted by name on the disk, the names of all of them are read to find the
+	 * page.
+	 */
+	@Override
+	public List<Joueur> listBefore(Joueur before, int count, PlayerFilter filter)
+	{
+		lock.lock();
+		try {
+			return page(before, true, count, filter);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc} The players are not sorted by name on the disk, the names of all of them are read to find the
+	 * page.
+	 */
+	@Override
+	public List<Joueur> listFromName(String prefix, int count, PlayerFilter filter)
+	{
+		lock.lock();
+		try {
+			return listAfter(Joueur.positionOfName(prefix), count, filter);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public List<Joueur> findByYear(int fromYear, int toYear)
+	{
+		lock.lock();
+		try {
+			return find(PlayerFilters.byYear(fromYear, toYear));
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public long countCartesByYear(final int fromYear, final int toYear)
+	{
+		lock.lock();
+		try {
+			final long[] count = { 0 };
+			forEachPlayer(new Consumer<Joueur>() {
+				@Override
+				public void accept(Joueur joueur)
+				{
+					for (Carte carte : joueur.getCartes()) {
+						if (carte.getAnneeSortie() >= fromYear && carte.getAnneeSortie() <= toYear) {
+							++count[0];
+						}
+					}
+				}
+			});
+			return count[0];
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public List<Joueur> findByTeam(String nomEquipe)
+	{
+		lock.lock();
+		try {
+			return find(PlayerFilters.byTeam(nomEquipe));
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void save() throws FailedToSaveInventoryException
+	{
+		try {
+			SavePipeline.await(savePipeline.request());
+		} catch (IOException e) {
+			logger.severe("Failed to save inventory to storage. " + e.getMessage());
+			throw new FailedToSaveInventoryException(data.getFile().getName(), e);
+		}
+	}
+
+	@Override
+	public CompletableFuture<Void> saveAsync()
+	{
+		return savePipeline.request();
+	}
+
+	@Override
+	public void awaitDurable() throws FailedToSaveInventoryException
+	{
+		try {
+			savePipeline.awaitLast();
+		} catch (IOException e) {
+			logger.severe("Failed to save inventory to storage. " + e.getMessage());
+			throw new FailedToSaveInventoryException(data.getFile().getName(), e);
+		}
+	}
+
+	@Override
+	public void close() throws FailedToSaveInventoryException
+	{
+		try {
+			save();
+		} finally {
+			savePipeline.close();
+			lock.lock();
+			try {
+				Logs.fine(logger, "Player cache of '%s': %s.", data.getFile().getName(), cache);
+				data.close();
+			} catch (IOException e) {
+				logger.severe("Failed to close data file. " + e.getMessage());
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Write the players changed, the index and, if the old records take too much space, a new data file.
+	 *
+	 * @throws IOException
+	 */
+	private void writeChanges() throws IOException
+	{
+		lock.lock();
+		try {
+			long start = System.nanoTime();
+			long dataSize = data.size();
+			int written;
+			try {
+				written = cache.flush();
+				if (!index.hasChanges() && data.size() == indexedDataSize) {
+					return;
+				}
+				data.force();
+				index.merge();
+				if (data.size() > 2 * index.getLiveBytes() + DATA_COMPACTION_THRESHOLD) {
+					data.compact(index);
+					Logs.fine(logger, "Data file '%s' compacted.", data.getFile().getName());
+				}
+				writeIndex();
+			} catch (IOException e) {
+				SAVE_METRICS.recordError();
+				throw e;
+			}
+			// Players and bytes written by this save, a compaction writes no new bytes
+			SAVE_METRICS.record(start, written, Math.max(0, data.size() - dataSize));
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Replace the index file with the index, merged.
+	 */
+	private void writeIndex() throws IOException
+	{
+		final long dataSize = data.size();
+		SnapshotWriter.write(indexFile, new SnapshotWriter.Content() {
+			@Override
+			public void writeTo(FileChannel channel) throws IOException
+			{
+				index.write(Channels.newOutputStream(channel), dataSize);
+			}
+		});
+		indexedDataSize = dataSize;
+	}
+
+	/**
+	 * Read the index file, or build the index again from the data file when the index file doesn't match it.
+	 *
+	 * @throws FailedToReadStorageException
+	 */
+	private KeyIndex loadIndex() throws FailedToReadStorageException
+	{
+		KeyIndex loaded = KeyIndex.read(indexFile, data.size());
+		if (loaded != null) {
+			indexedDataSize = data.size();
+			return loaded;
+		}
+		if (data.size() > 0) {
+			Logs.warning(logger, "Index '%s' missing or out of date, it is built again from '%s'.", indexFile.getName(),
+					data.getFile().getName());
+		}
+		final KeyIndex built = new KeyIndex();
+		try {
+			data.scan(new KeyIndex.Visitor() {
+				@Override
+				public void visit(String cle, long offset, int length)
+				{
+					built.append(cle, offset, length);
+				}
+			});
+		} catch (IOException e) {
+			logger.severe("Failed to read storage. " + e.getMessage());
+			throw new FailedToReadStorageException(data.getFile().getName(), e);
+		}
+		built.sortByKey(true);
+		return built;
+	}
+
+	/**
+	 * Copy the players of a storage file into the new data file, in the order of their keys, and write the index.
+	 *
+	 * @throws FailedToCreateStorageFileException
+	 * @throws FailedToReadStorageException
+	 */
+	private KeyIndex importStorage(StorageFormat format, File storageFile)
+			throws FailedToCreateStorageFileException,
+				FailedToReadStorageException
+	{
+		Logs.fine(logger, "Importing players from storage at '%s'.", storageFile.getName());
+		long start = System.nanoTime();
+		final KeyIndex imported = new KeyIndex();
+		boolean done = false;
+		try {
+			LoadProgress progress = new LoadProgress(logger, storageFile, new PlayerConsumer() {
+				@Override
+				public void accept(Joueur player, int lineNumber)
+				{
+					try {
+						long offset = data.append(player);
+						imported.append(player.getCle(), offset, (int) (data.size() - offset));
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			});
+			format.load(storageFile, progress);
+			progress.finish();
+			String duplicate = imported.sortByKey(false);
+			if (duplicate != null) {
+				throw new FailedToReadStorageException(storageFile.getName(), new DuplicatePlayerException(duplicate));
+			}
+			data.compact(imported);
+			LOAD_METRICS.record(start, imported.size(), storageFile.length());
+			done = true;
+		} catch (IOException | MalformedStorageException e) {
+			logger.severe("Failed to read storage. " + e.getMessage());
+			throw new FailedToReadStorageException(storageFile.getName(), e);
+		} catch (UncheckedIOException e) {
+			logger.severe("Failed to write to data file. " + e.getCause().getMessage());
+			throw new FailedToCreateStorageFileException(data.getFile().getPath(), e.getCause());
+		} finally {
+			if (!done) {
+				LOAD_METRICS.recordError();
+				// The next start imports the storage file again
+				try {
+					data.close();
+				} catch (IOException e) {
+					// The file is deleted anyway
+				}
+				data.getFile().delete();
+			}
+		}
+		return imported;
+	}
+
+	/**
+	 * Put a player in the cache, a changed player is written to the data file later.
+	 *
+	 * @throws IOException
+	 *             An older changed player couldn't be written to make room, the player is not in the cache.
+	 */
+	private void cachePlayer(Joueur player, boolean changed) throws IOException
+	{
+		try {
+			cache.put(player.getCle(), player, changed);
+		} catch (IOException e) {
+			logger.severe("Failed to write to data file. " + e.getMessage());
+			throw e;
+		}
+	}
+
+	/**
+	 * Put a player changed by a merge in the cache, or count him as failed.
+	 *
+	 * @return boolean true if the player is in the cache.
+	 */
+	private boolean cacheChangedPlayer(Joueur player, MergeResult result)
+	{
+		try {
+			cachePlayer(player, true);
+			return true;
+		} catch (IOException e) {
+			result.countFailed();
+			return false;
+		}
+	}
+
+	/**
+	 * Find a player with his key or fail.
+	 */
+	private Joueur requirePlayer(String cle) throws PlayerNotFoundException
+	{
+		Joueur joueur = findByCle(cle);
+		if (joueur == null) {
+			throw new PlayerNotFoundException(cle);
+		}
+		return joueur;
+	}
+
+	/**
+	 * Find the players accepted by a filter.
+	 */
+	private List<Joueur> find(final PlayerFilter filter)
+	{
+		final List<Joueur> found = new ArrayList<Joueur>();
+		forEachPlayer(new Consumer<Joueur>() {
+			@Override
+			public void accept(Joueur joueur)
+			{
+				if (filter.accept(joueur)) {
+					found.add(joueur);
+				}
+			}
+		});
+		found.sort(PLAYER_COMPARATOR);
+		return found;
+	}
+
+	/**
+	 * Find a page of players: the first ones after a player, or the last ones before a player. Only the key and the
+	 * name of a record are decoded to know if the player can be in the page, the whole player is read only then.
+	 *
+	 * @throws UncheckedIOException
+	 *             A player couldn't be read from the data file.
+	 */
+	private List<Joueur> page(final Joueur from, final boolean before, final int count, final PlayerFilter filter)
+	{
+		final TreeSet<Joueur> page = new TreeSet<Joueur>(PLAYER_COMPARATOR);
+		if (count <= 0) {
+			return new ArrayList<Joueur>(page);
+		}
+		try {
+			index.forEach(new KeyIndex.Visitor() {
+				@Override
+				public void visit(String cle, long offset, int length) throws IOException
+				{
+					Joueur player = cache.peek(cle);
+					Joueur header = player != null ? player : data.readWithoutCartes(offset, length);
+					if (from != null) {
+						int order = PLAYER_COMPARATOR.compare(header, from);
+						if (before ? order >= 0 : order <= 0) {
+							return;
+						}
+					}
+					// A full page only takes the players closer to 'from' than the farthest one it has
+					if (page.size() == count) {
+						Joueur farthest = before ? page.first() : page.last();
+						int order = PLAYER_COMPARATOR.compare(header, farthest);
+						if (before ? order <= 0 : order >= 0) {
+							return;
+						}
+					}
+					if (player == null) {
+						player = data.read(offset, length);
+					}
+					if (filter.accept(player)) {
+						page.add(player);
+						if (page.size() > count) {
+							if (before) {
+								page.pollFirst();
+							} else {
+								page.pollLast();
+							}
+						}
+					}
+				}
+			});
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return new ArrayList<Joueur>(page);
+	}
+
+	/**
+	 * {@inheritDoc} The players not in the cache are read from the data file without caching them.
+	 *
+	 * @throws UncheckedIOException
+	 *             A player couldn't be read from the data file.
+	 */
+	@Override
+	public void forEachPlayer(final Consumer<Joueur> consumer)
+	{
+		lock.lock();
+		try {
+			try {
+				index.forEach(new KeyIndex.Visitor() {
+					@Override
+					public void visit(String cle, long offset, int length) throws IOException
+					{
+						Joueur player = cache.peek(cle);
+						consumer.accept(player != null ? player : data.read(offset, length));
+					}
+				});
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package inventairePackage;
+
+/**
+ * What to do with a player added in bulk when a player with the same key is already in the inventory.
+ */
+public enum DuplicatePolicy
+{
+	/**
+	 * Keep the player of the inventory, the new player is ignored.
+	 */
+	SKIP,
+
+	/**
+	 * Replace the player of the inventory, with his name and his cards, by the new player.
+	 */
+	REPLACE,
+
+	/**
+	 * Keep the name of the player of the inventory and add the cards of the new player to his cards.
+	 */
+	MERGE
+}
@@ -1,31 +1,70 @@
 package inventairePackage;
 
+import inventairePackage.bulkimport.BulkImporter;
+import inventairePackage.bulkimport.ImportReport;
+import inventairePackage.exceptions.DuplicatePlayerException;
 import inventairePackage.exceptions.FailedToCreateStorageFileException;
 import inventairePackage.exceptions.FailedToReadStorageException;
 import inventairePackage.exceptions.FailedToSaveInventoryException;
 import inventairePackage.exceptions.InvalidParameterException;
 import inventairePackage.exceptions.InvalidStorageFileNameException;
 import inventairePackage.exceptions.MissingParameterException;
+import inventairePackage.exceptions.PlayerNotFoundException;
+import inventairePackage.export.ExportFormat;
+import inventairePackage.export.ExportFormats;
+import inventairePackage.export.PlayerExporter;
+import inventairePackage.export.StorageExportFormat;
+import inventairePackage.metrics.Metrics;
+import inventairePackage.metrics.MetricsDumper;
+import inventairePackage.metrics.OperationMetrics;
+import inventairePackage.server.InventoryServer;
+import inventairePackage.storage.BinaryStorageFormat;
+import inventairePackage.storage.LazyTextStorageFormat;
+import inventairePackage.storage.StorageFormat;
+import inventairePackage.storage.StorageFormats;
+import inventairePackage.storage.TextStorageFormat;
 import inventairePackage.utils.Strings;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
+/**
+ * Console menu of the inventory. Every operation is done by the inventory service, this class only asks the user and
+ * shows the results.
+ */
 public class Inventaire
 {
 	private static Logger logger = Logger.getLogger("InventoryManager");
-	private ArrayList<Joueur> players = new ArrayList<Joueur>();
+	private static final int DEFAULT_PAGE_SIZE = 10;
+	private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+	private static final String REJECTS_EXTENSION = ".rejets.txt";
+	// Metrics of the options of the menu by number, the time of an option is the time of its work on the inventory
+	private static final OperationMetrics[] OPTION_METRICS = { null, Metrics.get("menu.ajouter"),
+			Metrics.get("menu.afficher"), Metrics.get("menu.modifier"), Metrics.get("menu.effacer"),
+			Metrics.get("menu.liste"), Metrics.get("menu.sauvegarde"), Metrics.get("menu.recherche"),
+			Metrics.get("menu.importer") };
 	private static BufferedReader inputBufferedReader = new BufferedReader(new InputStreamReader(System.in));
-	private File storageFile;
+	private InventoryService service;
+	private String storageFileName;
+	// Time of the work of the option being done, -1 before its first work
+	private long optionWorkNanos = -1;
 
 	/**
-	 * Constructor.
+	 * Constructor using the text storage format.
 	 * 
 	 * @param storageFileNameWithoutExtention
 	 *            Name of the file without extension.
@@ -38,114 +77,43 @@ public class Inventaire
 				FailedToCreateStorageFileException,
 				FailedToReadStorageException
 	{
-		// Make sure the name given is valid
-		if (Strings.isNullOrEmpty(storageFileNameWithoutExtention)) {
-			throw new InvalidStorageFileNameException(storageFileNameWithoutExtention);
-		}
-
-		// Create file if it didn't exists or load it content
-		storageFile = new File(storageFileNameWithoutExtention + ".txt");
-		if (!storageFile.exists()) {
-			try {
-				storageFile.createNewFile();
-			} catch (IOException e) {
-				throw new FailedToCreateStorageFileException(storageFileNameWithoutExtention, e);
-			}
-		} else {
-			loadPlayersFromStorage();
-		}
-
-		// Show user menu and do what he ask for with the given options
-		showMenu();
+		this(storageFileNameWithoutExtention, new TextStorageFormat());
 	}
 
 	/**
-	 * Loads all the players and cards from storage.
+	 * Constructor.
 	 * 
+	 * @param storageFileNameWithoutExtention
+	 *            Name of the file without extension.
+	 * @param storageFormat
+	 *            Format of the storage file, it gives the extension of the file.
+	 * @throws InvalidStorageFileNameException
+	 * @throws FailedToCreateStorageFileException
 	 * @throws FailedToReadStorageException
 	 */
-	private void loadPlayersFromStorage() throws FailedToReadStorageException
-	{
-		logger.fine(String.format("Loading players and card from storage at '%s'.", storageFile.getName()));
-		BufferedReader reader = null;
-		try {
-			reader = new BufferedReader(new FileReader(storageFile));
-			String line;
-			while ((line = reader.readLine()) != null) {
-				if (line.length() > 0) {
-					createPlayerFromLineInStorage(line);
-				}
-			}
-		} catch (IOException | InvalidParameterException e) {
-			logger.severe("Failed to read storage. " + e.getMessage());
-			throw new FailedToReadStorageException(storageFile.getName(), e);
-		} finally {
-			try {
-				reader.close();
-			} catch (IOException e) {
-				logger.severe("Failed to close FileReader. " + e.getMessage());
-			}
-		}
-
-		players.sort(new JoueurComparateur());
-	}
-
-	/**
-	 * Create a new player and it cards from a line in the storage.
-	 * 
-	 * @param line
-	 *            Line readed in the storage.
-	 * @throws InvalidParameterException
-	 */
-	private void createPlayerFromLineInStorage(String line) throws InvalidParameterException
+	public Inventaire(String storageFileNameWithoutExtention, StorageFormat storageFormat)
+			throws InvalidStorageFileNameException,
+				FailedToCreateStorageFileException,
+				FailedToReadStorageException
 	{
-		String[] splitedInformations = line.split(";");
-		logger.fine("Read line : " + line);
-
-		// Create player
-		String cle = splitedInformations[0].trim().replace("\"", "");
-		String nomJoueur = splitedInformations[1].trim().replace("\"", "");
-		int numberOfCards = Integer.parseInt(splitedInformations[2].trim().replace("\"", ""));
-
-		Joueur player = new Joueur(cle, nomJoueur);
-
-		// Create cards
-		for (int i = 0; i < numberOfCards; ++i) {
-			String cardTitle = splitedInformations[3 + (3 * i)].trim().replace("\"", "");
-			String teamName = splitedInformations[4 + (3 * i)].trim().replace("\"", "");
-			int cardYear = Integer.parseInt(splitedInformations[5 + (3 * i)].trim().replace("\"", ""));
-
-			Carte card = new Carte(cardTitle, teamName, cardYear);
-			player.addCarte(card);
-		}
-
-		players.add(player);
+		StorageInventoryService storageService = new StorageInventoryService(storageFileNameWithoutExtention,
+				storageFormat);
+		storageFileName = storageService.getStorageFile().getName();
+		service = storageService;
 	}
 
 	/**
-	 * Save all the players and their cards to the storage file.
+	 * Constructor on an inventory already opened.
 	 * 
-	 * @throws FailedToSaveInventoryException
-	 *             Failed to create the storage file, failed to write to file or anything else related to IO.
+	 * @param service
+	 *            The inventory.
+	 * @param storageFileName
+	 *            Name of the file where the inventory is saved, shown to the user.
 	 */
-	private void savePlayersToStorage() throws FailedToSaveInventoryException
+	public Inventaire(InventoryService service, String storageFileName)
 	{
-		FileWriter writer = null;
-		try {
-			writer = new FileWriter(storageFile, false);
-			for (Joueur player : players) {
-				writer.append(player.toCSVEntryFormat() + "\n");
-			}
-		} catch (IOException e) {
-			logger.severe("Failed to save inventory to storage. " + e.getMessage());
-			throw new FailedToSaveInventoryException(storageFile.getName(), e);
-		} finally {
-			try {
-				writer.close();
-			} catch (IOException e) {
-				logger.severe("Failed to close FileWriter." + e.getMessage());
-			}
-		}
+		this.service = service;
+		this.storageFileName = storageFileName;
 	}
 
 	/**
@@ -164,6 +132,8 @@ public class Inventaire
 			System.out.println("4. Effacer l'information d'un joueur");
 			System.out.println("5. Liste des joueurs");
 			System.out.println("6. Sauvegarde");
+			System.out.println("7. Recherche de joueurs par carte");
+			System.out.println("8. Importer des joueurs");
 			System.out.println(" ");
 			System.out.println("0. Sortir");
 			System.out.print("Votre sélection : ");
@@ -188,30 +158,62 @@ public class Inventaire
 	 */
 	public void redirectToOption(int option)
 	{
-		switch (option) {
-			case 1:
-				addPlayer();
-				break;
-			case 2:
-				showPlayer();
-				break;
-			case 3:
-				updatePlayer();
-				break;
-			case 4:
-				deletePlayerInfo();
-				break;
-			case 5:
-				showPlayerList();
-				break;
-			case 6:
-				save();
-				break;
-			default:
+		OperationMetrics metrics = option > 0 && option < OPTION_METRICS.length ? OPTION_METRICS[option] : null;
+		optionWorkNanos = -1;
+		try {
+			switch (option) {
+				case 1:
+					addPlayer();
+					break;
+				case 2:
+					showPlayer();
+					break;
+				case 3:
+					updatePlayer();
+					break;
+				case 4:
+					deletePlayerInfo();
+					break;
+				case 5:
+					showPlayerList();
+					break;
+				case 6:
+					save();
+					break;
+				case 7:
+					searchPlayersByCard();
+					break;
+				case 8:
+					importPlayers();
+					break;
+				default:
+			}
+			// Only the work of the inventory is measured, not the time the user takes to answer
+			if (metrics != null && optionWorkNanos >= 0) {
+				metrics.recordDuration(optionWorkNanos);
+			}
+		} catch (UncheckedIOException e) {
+			// Cards loaded lazily that couldn't be read, or a change that couldn't be written
+			logger.severe("Failed to read or write the inventory. " + e.getCause().getMessage());
+			System.out.println("L'inventaire n'a pas pu être lu ou écrit sur le disque.");
+			if (metrics != null) {
+				metrics.recordError();
+			}
 		}
 		pauseProg();
 	}
 
+	/**
+	 * Add the time of a piece of work of the inventory to the option being done.
+	 *
+	 * @param start
+	 *            System.nanoTime() when the work started.
+	 */
+	private void workDone(long start)
+	{
+		optionWorkNanos = Math.max(0, optionWorkNanos) + System.nanoTime() - start;
+	}
+
 	/**
 	 * Creates a player and adds him to the players array.
 	 */
@@ -232,8 +234,9 @@ public class Inventaire
 			nomJoueur = inputBufferedReader.readLine();
 
 			joueur = new Joueur(cle, nomJoueur);
-			players.add(joueur);
-			players.sort(new JoueurComparateur());
+			long start = System.nanoTime();
+			service.addPlayer(joueur);
+			workDone(start);
 
 			System.out.println("Combien de cartes? :");
 			nbrCartes = Integer.parseInt(inputBufferedReader.readLine());
@@ -247,6 +250,8 @@ public class Inventaire
 			e.printStackTrace();
 		} catch (InvalidParameterException e) {
 			e.printStackTrace();
+		} catch (DuplicatePlayerException e) {
+			System.out.println("Un joueur avec cette clé existe déjà.");
 		}
 
 	}
@@ -264,6 +269,7 @@ public class Inventaire
 		String titreCarte = "";
 		String equipeCarte = "";
 		int anneeCarte = 0;
+		List<Carte> cartes = new ArrayList<Carte>();
 
 		try {
 			for (int i = 0; i < nbrCartes; i++) {
@@ -276,7 +282,7 @@ public class Inventaire
 
 				System.out.println("Entrez l'année de parution de la carte " + num + " :");
 				anneeCarte = Integer.parseInt(inputBufferedReader.readLine());
-				joueur.addCarte(new Carte(titreCarte, equipeCarte, anneeCarte));
+				cartes.add(new Carte(titreCarte, equipeCarte, anneeCarte));
 			}
 		} catch (NumberFormatException nfe) {
 			System.err.println("Invalid Format!");
@@ -284,6 +290,15 @@ public class Inventaire
 			e.printStackTrace();
 		} catch (InvalidParameterException e) {
 			e.printStackTrace();
+		} finally {
+			// Keep the cards entered before an error
+			try {
+				long start = System.nanoTime();
+				service.addCards(joueur.getCle(), cartes);
+				workDone(start);
+			} catch (PlayerNotFoundException | InvalidParameterException e) {
+				e.printStackTrace();
+			}
 		}
 
 	}
@@ -303,30 +318,29 @@ public class Inventaire
 	/**
 	 * Shows the information of the player chosen by the user.
 	 * 
+	 * @return Joueur The player chosen or null if he doesn't exist.
 	 */
-	private int showInfoPlayer()
+	private Joueur showInfoPlayer()
 	{
 		String cle = "";
-		int position = 0;
+		Joueur joueur = null;
 
 		System.out.println(" ");
 		System.out.println("Entrez la clé d'identification du joueur:");
 
 		try {
 			cle = inputBufferedReader.readLine();
-			for (position = 0; position < players.size(); position++) {
-				if (players.get(position).getCle().equals(cle)) {
-					break;
-				}
-			}
-			if (position == players.size()) {
+			long start = System.nanoTime();
+			joueur = service.findByCle(cle);
+			workDone(start);
+			if (joueur == null) {
 				System.out.println("Le joueur n'existe pas");
 			} else {
-				System.out.println("Voici l'information sauvegardé de: " + players.get(position).getNomJoueur());
-				int nbrCartes = players.get(position).getNombreCartes();
+				System.out.println("Voici l'information sauvegardé de: " + joueur.getNomJoueur());
+				int nbrCartes = joueur.getNombreCartes();
 				System.out.println("Le joueur a " + nbrCartes + " cartes enregistrées");
 
-				ArrayList<Carte> cartes = players.get(position).getCartes();
+				ArrayList<Carte> cartes = joueur.getCartes();
 				for (int j = 0; j < nbrCartes; j++) {
 					int num = j + 1;
 					System.out.println("Carte " + num + " :");
@@ -338,7 +352,7 @@ public class Inventaire
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
-		return position;
+		return joueur;
 	}
 
 	/**
@@ -347,30 +361,32 @@ public class Inventaire
 	private void updatePlayer()
 	{
 		int nbrCartes = 0;
-		int position = 0;
+		Joueur joueur = null;
 		String nomJoueur = "";
 
 		System.out.println("Option sélectionnée : 3. Mise à jour de l'information d'un joueur");
 
-		position = showInfoPlayer();
+		joueur = showInfoPlayer();
 
 		try {
-			if (position != players.size()) {
+			if (joueur != null) {
 				System.out.println(" ");
 				System.out.println("Maintenant entrée les données à modifier:");
 				System.out.println("Entrez le nom du joueur:");
 				nomJoueur = inputBufferedReader.readLine();
-				players.get(position).setNomJoueur(nomJoueur);
+				long start = System.nanoTime();
+				service.updateName(joueur.getCle(), nomJoueur);
+				workDone(start);
 				System.out.println("Combien de cartes:");
 				nbrCartes = Integer.parseInt(inputBufferedReader.readLine());
 
-				addCards(nbrCartes, players.get(position));
+				addCards(nbrCartes, joueur);
 			}
 		} catch (NumberFormatException nfe) {
 			System.err.println("Invalid Format!");
 		} catch (IOException e) {
 			e.printStackTrace();
-		} catch (InvalidParameterException e) {
+		} catch (InvalidParameterException | PlayerNotFoundException e) {
 			e.printStackTrace();
 		}
 	}
@@ -380,21 +396,23 @@ public class Inventaire
 	 */
 	private void deletePlayerInfo()
 	{
-		int position = 0;
+		Joueur joueur = null;
 		String reponse = "";
 		String nomJoueur = "";
 
 		System.out.println("Option sélectionnée : 4. Effacer l'information d'un joueur");
 
-		position = showInfoPlayer();
+		joueur = showInfoPlayer();
 
 		try {
-			if (position != players.size()) {
+			if (joueur != null) {
 				System.out.println("Voulez vous effacer l'information de ce joueur ? (O/N)");
 				reponse = inputBufferedReader.readLine();
-				nomJoueur = players.get(position).getNomJoueur();
+				nomJoueur = joueur.getNomJoueur();
 				if (reponse.equals("O") || reponse.equals("o")) {
-					players.remove(position);
+					long start = System.nanoTime();
+					service.delete(joueur.getCle());
+					workDone(start);
 					System.out.println("L'information du joueur " + nomJoueur + " a été efface du système.");
 				} else {
 					System.out.println("L'information du joueur " + nomJoueur + " n'a pas été efface du système.");
@@ -402,7 +420,7 @@ public class Inventaire
 			}
 		} catch (NumberFormatException nfe) {
 			System.err.println("Invalid Format!");
-		} catch (IOException e) {
+		} catch (IOException | PlayerNotFoundException e) {
 			e.printStackTrace();
 		}
 	}
@@ -413,7 +431,6 @@ public class Inventaire
 	private void showPlayerList()
 	{
 		String reponse = "";
-		File oldStorageFile = storageFile;
 
 		System.out.println("Option sélectionnée : 5. Liste de joueurs \n");
 		System.out.println("Voulez-vous creer la liste des joueurs dans un fichier ou l'afficher sur l'ecran ? (F/E): ");
@@ -423,40 +440,36 @@ public class Inventaire
 
 			switch (reponse) {
 				case "E":
-					for (Joueur j : players) {
-						System.out.println("Joueur : " + j.getCle());
-						System.out.println("Voici l'information sauvegardé de : " + j.getNomJoueur());
-						System.out.println("Le joueur a " + j.getNombreCartes() + " cartes enregistrées");
-						ArrayList<Carte> cartes = j.getCartes();
-						for (int i = 0; i < j.getNombreCartes(); i++) {
-							int num = i + 1;
-							System.out.println("Carte " + num + " :");
-							System.out.println("Titre : " + cartes.get(i).getTitreCarte());
-							System.out.println("Équipe : " + cartes.get(i).getNomEquipe());
-							System.out.println("Année de parution :  " + cartes.get(i).getAnneeSortie());
-						}
-						System.out.println("\n");
-					}
+					browsePlayers();
 					break;
 				case "F":
-					try {
-						System.out.println("Entrez le nom du fichier : ");
-						reponse = inputBufferedReader.readLine();
-						storageFile = new File(reponse);
-						if (!storageFile.exists()) {
-							storageFile.createNewFile();
-						}
-						savePlayersToStorage();
-						System.out.println("Liste des joueurs à l'endroit suivant : " + storageFile.getPath());
-						storageFile = oldStorageFile;
-					} catch (FailedToSaveInventoryException e) {
-						e.printStackTrace();
+					System.out.println("Entrez le nom du fichier (.csv, .jsonl ou .txt, .gz pour le compresser) : ");
+					reponse = inputBufferedReader.readLine();
+					File listFile = new File(reponse);
+					// A file without a known extension is written in the storage format
+					ExportFormat format = ExportFormats.fromFileName(listFile.getName());
+					if (format == null) {
+						format = new StorageExportFormat();
 					}
+					// The players are given one by one, an inventory on disk is not read into memory
+					PlayerExporter.Source players = new PlayerExporter.Source() {
+						@Override
+						public void forEachPlayer(Consumer<Joueur> consumer)
+						{
+							service.forEachPlayer(consumer);
+						}
+					};
+					long start = System.nanoTime();
+					new PlayerExporter().export(listFile, players, format, ExportFormats.isGzip(listFile.getName()));
+					workDone(start);
+					System.out.println("Liste des joueurs à l'endroit suivant : " + listFile.getPath());
 					break;
 				default:
 					System.out.println("Choix invalide, veuillez entrée E ou F");
 					break;
 			}
+		} catch (NumberFormatException nfe) {
+			System.err.println("Invalid Format!");
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -464,16 +477,235 @@ public class Inventaire
 	}
 
 	/**
-	 * Save the inventory to the storage.
+	 * Show the players one page at a time, filtered by team or by years. Only the page shown is read and written,
+	 * through one buffered writer.
+	 * 
+	 * @throws IOException
+	 */
+	private void browsePlayers() throws IOException
+	{
+		PlayerFilter filter = PlayerFilters.all();
+		System.out.println("Filtrer les joueurs par équipe, par année ou afficher tous les joueurs ? (E/A/T): ");
+		String reponse = inputBufferedReader.readLine();
+		if ("E".equals(reponse)) {
+			System.out.println("Entrez le nom de l'équipe :");
+			filter = PlayerFilters.byTeam(inputBufferedReader.readLine());
+		} else if ("A".equals(reponse)) {
+			System.out.println("Entrez la première année :");
+			int fromYear = Integer.parseInt(inputBufferedReader.readLine());
+			System.out.println("Entrez la dernière année :");
+			int toYear = Integer.parseInt(inputBufferedReader.readLine());
+			filter = PlayerFilters.byYear(fromYear, toYear);
+		}
+
+		System.out.println("Combien de joueurs par page ? (" + DEFAULT_PAGE_SIZE + " par défaut) :");
+		reponse = inputBufferedReader.readLine();
+		int pageSize = Strings.isNullOrEmpty(reponse) ? DEFAULT_PAGE_SIZE : Math.max(1, Integer.parseInt(reponse));
+
+		// System.out is not closed, only flushed after every page
+		Writer out = new BufferedWriter(new OutputStreamWriter(System.out), OUTPUT_BUFFER_SIZE);
+		long start = System.nanoTime();
+		PlayerPages pages = new PlayerPages(service, pageSize, filter);
+		workDone(start);
+		if (pages.getPage().isEmpty()) {
+			System.out.println("Aucun joueur à afficher.");
+			return;
+		}
+		while (true) {
+			for (Joueur joueur : pages.getPage()) {
+				writePlayer(out, joueur);
+			}
+			out.write("S : page suivante, P : page précédente, N : aller à un nom, Q : quitter\n");
+			out.flush();
+
+			String commande = inputBufferedReader.readLine();
+			if (commande == null || commande.equals("Q")) {
+				return;
+			} else if (commande.equals("S")) {
+				start = System.nanoTime();
+				boolean moved = pages.next();
+				workDone(start);
+				if (!moved) {
+					out.write("C'est la dernière page.\n");
+				}
+			} else if (commande.equals("P")) {
+				start = System.nanoTime();
+				boolean moved = pages.previous();
+				workDone(start);
+				if (!moved) {
+					out.write("C'est la première page.\n");
+				}
+			} else if (commande.equals("N")) {
+				System.out.println("Entrez le début du nom :");
+				String prefix = inputBufferedReader.readLine();
+				start = System.nanoTime();
+				boolean moved = pages.jumpTo(prefix);
+				workDone(start);
+				if (!moved) {
+					out.write("Aucun joueur après ce nom.\n");
+				}
+			} else {
+				out.write("Choix invalide, veuillez entrée S, P, N ou Q\n");
+			}
+		}
+	}
+
+	/**
+	 * Write the information of a player and of his cards.
 	 */
-	private void save()
+	private static void writePlayer(Writer out, Joueur j) throws IOException
 	{
+		out.write("Joueur : ");
+		out.write(j.getCle());
+		out.write("\nVoici l'information sauvegardé de : ");
+		out.write(j.getNomJoueur());
+		out.write("\nLe joueur a ");
+		out.write(Integer.toString(j.getNombreCartes()));
+		out.write(" cartes enregistrées\n");
+		ArrayList<Carte> cartes = j.getCartes();
+		for (int i = 0; i < cartes.size(); i++) {
+			Carte carte = cartes.get(i);
+			out.write("Carte ");
+			out.write(Integer.toString(i + 1));
+			out.write(" :\nTitre : ");
+			out.write(carte.getTitreCarte());
+			out.write("\nÉquipe : ");
+			out.write(carte.getNomEquipe());
+			out.write("\nAnnée de parution :  ");
+			out.write(Integer.toString(carte.getAnneeSortie()));
+			out.write('\n');
+		}
+		out.write("\n\n");
+	}
+
+	/**
+	 * Show the players who have cards of a team or of a range of years.
+	 */
+	private void searchPlayersByCard()
+	{
+		String reponse = "";
+		List<Joueur> found = null;
+
+		System.out.println("Option sélectionnée : 7. Recherche de joueurs par carte \n");
+		System.out.println("Voulez-vous chercher par année ou par équipe ? (A/E): ");
+
 		try {
-			this.savePlayersToStorage();
-			System.out.println("Le fichier " + this.storageFile.getName() + " a été créé avec succès.");
-		} catch (FailedToSaveInventoryException e) {
+			reponse = inputBufferedReader.readLine();
+
+			switch (reponse) {
+				case "A":
+					System.out.println("Entrez la première année :");
+					int fromYear = Integer.parseInt(inputBufferedReader.readLine());
+					System.out.println("Entrez la dernière année :");
+					int toYear = Integer.parseInt(inputBufferedReader.readLine());
+					long start = System.nanoTime();
+					found = service.findByYear(fromYear, toYear);
+					long count = service.countCartesByYear(fromYear, toYear);
+					workDone(start);
+					System.out.println(count + " cartes de " + fromYear + " à " + toYear);
+					break;
+				case "E":
+					System.out.println("Entrez le nom de l'équipe :");
+					String nomEquipe = inputBufferedReader.readLine();
+					start = System.nanoTime();
+					found = service.findByTeam(nomEquipe);
+					workDone(start);
+					break;
+				default:
+					System.out.println("Choix invalide, veuillez entrée A ou E");
+					break;
+			}
+		} catch (NumberFormatException nfe) {
+			System.err.println("Invalid Format!");
+		} catch (IOException e) {
 			e.printStackTrace();
 		}
+
+		if (found != null) {
+			System.out.println(found.size() + " joueurs trouvés");
+			for (Joueur j : found) {
+				System.out.println(j.getCle() + " : " + j.getNomJoueur());
+			}
+		}
+	}
+
+	/**
+	 * Import players from CSV or JSON Lines files. The records rejected are written next to the first file.
+	 */
+	private void importPlayers()
+	{
+		List<File> files = new ArrayList<File>();
+		String reponse = "";
+
+		System.out.println("Option sélectionnée : 8. Importer des joueurs \n");
+		System.out.println("Entrez les noms des fichiers (.csv ou .jsonl, .gz si compressé), "
+				+ "une ligne vide pour finir :");
+
+		try {
+			while (!Strings.isNullOrEmpty(reponse = inputBufferedReader.readLine())) {
+				files.add(new File(reponse));
+			}
+			if (files.isEmpty()) {
+				System.out.println("Aucun fichier à importer.");
+				return;
+			}
+			System.out.println("Que faire des joueurs déjà présents ? "
+					+ "Ignorer, Remplacer ou Fusionner les cartes (I/R/F): ");
+			DuplicatePolicy policy;
+			reponse = inputBufferedReader.readLine();
+			switch (reponse) {
+				case "I":
+					policy = DuplicatePolicy.SKIP;
+					break;
+				case "R":
+					policy = DuplicatePolicy.REPLACE;
+					break;
+				case "F":
+					policy = DuplicatePolicy.MERGE;
+					break;
+				default:
+					System.out.println("Choix invalide, veuillez entrée I, R ou F");
+					return;
+			}
+
+			long start = System.nanoTime();
+			ImportReport report = new BulkImporter(service, policy).importFiles(files);
+			workDone(start);
+			MergeResult result = report.getMergeResult();
+			System.out.println(report.getRecords() + " enregistrements lus, " + report.getRejects().size()
+					+ " rejetés");
+			System.out.println(result.getAdded() + " joueurs ajoutés, " + result.getReplaced() + " remplacés, "
+					+ result.getMerged() + " fusionnés, " + result.getSkipped() + " ignorés, " + result.getFailed()
+					+ " en échec");
+			if (!report.getRejects().isEmpty()) {
+				File rejectsFile = new File(files.get(0).getPath() + REJECTS_EXTENSION);
+				report.writeRejects(rejectsFile);
+				System.out.println("Enregistrements rejetés à l'endroit suivant : " + rejectsFile.getPath());
+			}
+		} catch (IOException e) {
+			logger.severe("Failed to import players. " + e.getMessage());
+			System.out.println("L'importation a échoué : " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Save the inventory to the storage in the background, the user doesn't wait for the file to be written. A failure
+	 * is logged and shown again when the program quits.
+	 */
+	private void save()
+	{
+		long start = System.nanoTime();
+		service.saveAsync().whenComplete(new BiConsumer<Void, Throwable>() {
+			@Override
+			public void accept(Void result, Throwable error)
+			{
+				if (error != null) {
+					logger.severe("Failed to save inventory. " + error.getMessage());
+				}
+			}
+		});
+		workDone(start);
+		System.out.println("La sauvegarde du fichier " + storageFileName + " est en cours.");
 	}
 
 	/**
@@ -481,7 +713,17 @@ public class Inventaire
 	 */
 	private void exit()
 	{
-		this.save();
+		try {
+			// Make sure the saves asked from the menu are on the disk before quitting
+			service.awaitDurable();
+		} catch (FailedToSaveInventoryException e) {
+			e.printStackTrace();
+		}
+		try {
+			service.close();
+		} catch (FailedToSaveInventoryException e) {
+			e.printStackTrace();
+		}
 		System.out.println("Merci d'avoir utilisé le système de gestion d'inventaire de cartes.");
 		System.exit(0);
 	}
@@ -502,22 +744,204 @@ public class Inventaire
 	/**
 	 * Main function.
 	 * 
-	 * @param args	Program arguments (file)
+	 * @param args	Program arguments ([-bin] [-lazy[=cards] | -disk[=players]] [-metrics[=file]]
+	 * 				[-batch[=commands] | -server[=port]] file), the format of the file is given by its extension (.txt or .bin), or by the -bin option when
+	 * 				the file has no extension. With -batch, the commands are read from the given file or from the
+	 * 				standard input instead of the menu. With -server, the commands are received from the connections to
+	 * 				the port on localhost. With -lazy, the cards of a text file are read when they are needed and the given number
+	 * 				of cards is kept in memory. With -disk, the players stay in a data file (.dat), created from the
+	 * 				storage file the first time, and the given number of players is kept in memory. With -metrics,
+	 * 				the counters and durations of the operations are written every 10 seconds to the given file or to
+	 * 				the file with the .metrics extension, they are always published through JMX.
 	 * @throws FailedToReadStorageException 
 	 * 					Failed to read the storage from file.
 	 * @throws FailedToCreateStorageFileException 
 	 * 					Failed to create the storage file at the wanted destination.
 	 * @throws InvalidStorageFileNameException 
 	 * 					Received invalid file storage name.
+	 * @throws InvalidParameterException 
+	 * 					The value of -server, -lazy or -disk is not a valid number.
 	 */
-	public static void main(String[] args) throws MissingParameterException, InvalidStorageFileNameException, FailedToCreateStorageFileException, FailedToReadStorageException
+	public static void main(String[] args) throws MissingParameterException, InvalidParameterException, InvalidStorageFileNameException, FailedToCreateStorageFileException, FailedToReadStorageException
 	{
 		// First parameter received is the name of the file we will use on the
 		// hard drive where this application is located
-		if (args.length == 0) {
+		String fileName = null;
+		StorageFormat format = new TextStorageFormat();
+		boolean batch = false;
+		String commandFileName = null;
+		int serverPort = -1;
+		long lazyCachedCards = -1;
+		int diskCachedPlayers = -1;
+		boolean metrics = false;
+		String metricsFileName = null;
+		for (String arg : args) {
+			if (arg.equals("-bin")) {
+				format = new BinaryStorageFormat();
+			} else if (arg.equals("-batch")) {
+				batch = true;
+			} else if (arg.startsWith("-batch=")) {
+				batch = true;
+				commandFileName = arg.substring("-batch=".length());
+			} else if (arg.equals("-server")) {
+				serverPort = InventoryServer.DEFAULT_PORT;
+			} else if (arg.startsWith("-server=")) {
+				serverPort = (int) parseNumber(arg, "-server=", 0, 65535);
+			} else if (arg.equals("-lazy")) {
+				lazyCachedCards = LazyTextStorageFormat.DEFAULT_CACHED_CARDS;
+			} else if (arg.startsWith("-lazy=")) {
+				lazyCachedCards = parseNumber(arg, "-lazy=", 0, Long.MAX_VALUE);
+			} else if (arg.equals("-metrics")) {
+				metrics = true;
+			} else if (arg.startsWith("-metrics=")) {
+				metrics = true;
+				metricsFileName = arg.substring("-metrics=".length());
+			} else if (arg.equals("-disk")) {
+				diskCachedPlayers = DiskInventoryService.DEFAULT_CACHE_SIZE;
+			} else if (arg.startsWith("-disk=")) {
+				diskCachedPlayers = (int) parseNumber(arg, "-disk=", 0, Integer.MAX_VALUE);
+			} else {
+				fileName = arg;
+			}
+		}
+
+		if (fileName == null) {
 			throw new MissingParameterException("file", "you must provide a file where to store informations about players and cards.");
 		} else {
-			new Inventaire(args[0]);
+			StorageFormat formatFromExtension = StorageFormats.fromFileName(fileName);
+			if (formatFromExtension != null) {
+				format = formatFromExtension;
+				fileName = fileName.substring(0, fileName.length() - format.getExtension().length());
+			}
+			if (lazyCachedCards >= 0 && diskCachedPlayers < 0) {
+				if (format instanceof TextStorageFormat) {
+					format = new LazyTextStorageFormat(lazyCachedCards);
+				} else {
+					System.err.println("Le chargement des cartes à la demande n'existe que pour le format texte.");
+				}
+			}
+			if (metrics) {
+				final MetricsDumper dumper = new MetricsDumper(new File(metricsFileName != null ? metricsFileName
+						: fileName + MetricsDumper.EXTENSION), MetricsDumper.DEFAULT_PERIOD_SECONDS);
+				Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+					@Override
+					public void run()
+					{
+						dumper.close();
+					}
+				}, "metrics-shutdown"));
+			}
+			InventoryService service;
+			String storageFileName;
+			if (diskCachedPlayers >= 0) {
+				DiskInventoryService diskService = new DiskInventoryService(fileName, format, diskCachedPlayers);
+				service = diskService;
+				storageFileName = diskService.getStorageFile().getName();
+			} else {
+				StorageInventoryService storageService = new StorageInventoryService(fileName, format);
+				service = storageService;
+				storageFileName = storageService.getStorageFile().getName();
+			}
+			if (serverPort >= 0) {
+				runServer(service, serverPort);
+			} else if (batch) {
+				runBatch(service, commandFileName);
+			} else {
+				// Show user menu and do what he ask for with the given options
+				new Inventaire(service, storageFileName).showMenu();
+			}
+		}
+	}
+
+	/**
+	 * Read the number given to an option of the program, like the port of -server=port.
+	 * 
+	 * @param arg
+	 *            The argument with the option and the number.
+	 * @param option
+	 *            The option, with its '='.
+	 * @param min
+	 *            Smallest number accepted.
+	 * @param max
+	 *            Largest number accepted.
+	 * @return long The number.
+	 * @throws InvalidParameterException
+	 *             The value is not a number between min and max.
+	 */
+	private static long parseNumber(String arg, String option, long min, long max) throws InvalidParameterException
+	{
+		String value = arg.substring(option.length());
+		try {
+			long number = Long.parseLong(value);
+			if (number >= min && number <= max) {
+				return number;
+			}
+		} catch (NumberFormatException e) {
+			// Reported as any other value out of the range
+		}
+		throw new InvalidParameterException(option.substring(0, option.length() - 1), String.format(
+				"%s is not a number between %d and %d", value, min, max));
+	}
+
+	/**
+	 * Serve the inventory to the connections on localhost until the program is stopped.
+	 * 
+	 * @param service
+	 *            The inventory.
+	 * @param port
+	 *            Port to listen to.
+	 */
+	private static void runServer(InventoryService service, int port)
+	{
+		final InventoryServer server = new InventoryServer(service, port, InventoryServer.DEFAULT_SAVE_PERIOD_SECONDS);
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+			@Override
+			public void run()
+			{
+				try {
+					server.close();
+				} catch (FailedToSaveInventoryException e) {
+					e.printStackTrace();
+				}
+			}
+		}, "inventory-shutdown"));
+		try {
+			server.start();
+			System.out.println("Serveur d'inventaire sur le port " + server.getPort() + ".");
+			server.acceptConnections();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Run the commands of a file, or of the standard input, without asking anything to the user.
+	 * 
+	 * @param service
+	 *            The inventory.
+	 * @param commandFileName
+	 *            File with the commands or null to read the standard input.
+	 */
+	private static void runBatch(InventoryService service, String commandFileName)
+	{
+		Writer output = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), OUTPUT_BUFFER_SIZE);
+		try (Reader commands = commandFileName == null
+				? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+				: new InputStreamReader(new FileInputStream(commandFileName), StandardCharsets.UTF_8)) {
+			new BatchRunner(service, output).run(commands);
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			try {
+				service.close();
+			} catch (FailedToSaveInventoryException e) {
+				e.printStackTrace();
+			}
+			try {
+				output.flush();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
 		}
 	}
 }
\ No newline at end of file
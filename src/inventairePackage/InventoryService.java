@@ -0,0 +1,204 @@
+package inventairePackage;
+
+import inventairePackage.exceptions.DuplicatePlayerException;
+import inventairePackage.exceptions.FailedToSaveInventoryException;
+import inventairePackage.exceptions.InvalidParameterException;
+import inventairePackage.exceptions.PlayerNotFoundException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Operations on an inventory of players and their cards, without any user interface. Every change is kept by the
+ * inventory, save makes sure the changes are on the disk.
+ *
+ * The players returned belong to the inventory and must never be changed, the changes are made through the service.
+ */
+public interface InventoryService
+{
+	/**
+	 * Find a player with his key.
+	 *
+	 * @param cle
+	 *            Key of the player.
+	 * @return Joueur The player or null if no player has this key.
+	 */
+	Joueur findByCle(String cle);
+
+	/**
+	 * Add a new player with his cards.
+	 *
+	 * @param joueur
+	 *            The new player, the inventory keeps him.
+	 * @throws DuplicatePlayerException
+	 *             A player with the same key is already in the inventory.
+	 */
+	void addPlayer(Joueur joueur) throws DuplicatePlayerException;
+
+	/**
+	 * Add many players at once. The players are sorted once and merged into the inventory in this order, instead of
+	 * being added one by one.
+	 *
+	 * @param joueurs
+	 *            The new players, the inventory keeps copies of them. A key can appear several times, the duplicate
+	 *            policy then applies to the second player too.
+	 * @param policy
+	 *            What to do with a player whose key is already in the inventory.
+	 * @return MergeResult What was done with the players.
+	 */
+	MergeResult mergePlayers(List<Joueur> joueurs, DuplicatePolicy policy);
+
+	/**
+	 * Add cards to a player.
+	 *
+	 * @param cle
+	 *            Key of the player.
+	 * @param cartes
+	 *            The new cards.
+	 * @throws PlayerNotFoundException
+	 * @throws InvalidParameterException
+	 *             A card is null, nothing was changed.
+	 */
+	void addCards(String cle, List<Carte> cartes) throws PlayerNotFoundException, InvalidParameterException;
+
+	/**
+	 * Change the name of a player.
+	 *
+	 * @param cle
+	 *            Key of the player.
+	 * @param nomJoueur
+	 *            New name of the player.
+	 * @throws PlayerNotFoundException
+	 * @throws InvalidParameterException
+	 *             The new name is invalid, nothing was changed.
+	 */
+	void updateName(String cle, String nomJoueur) throws PlayerNotFoundException, InvalidParameterException;
+
+	/**
+	 * Delete a player and his cards.
+	 *
+	 * @param cle
+	 *            Key of the player.
+	 * @throws PlayerNotFoundException
+	 */
+	void delete(String cle) throws PlayerNotFoundException;
+
+	/**
+	 * Get all the players.
+	 *
+	 * @return List<Joueur> Read-only list of the players sorted by name.
+	 */
+	List<Joueur> list();
+
+	/**
+	 * Give all the players one by one, without putting them all in one list, for the exports of big inventories.
+	 *
+	 * @param consumer
+	 *            Called for every player: in the order of the names for an inventory in memory, in the order of the
+	 *            keys for an inventory on disk.
+	 */
+	void forEachPlayer(Consumer<Joueur> consumer);
+
+	/**
+	 * Get a page of players in the order of the names, starting after a player. Only the players of the page are
+	 * read, so the time doesn't depend on the size of the inventory.
+	 *
+	 * @param after
+	 *            Last player of the previous page, null to start with the first player.
+	 * @param count
+	 *            Maximum number of players.
+	 * @param filter
+	 *            The players kept.
+	 * @return List<Joueur> The players sorted by name.
+	 */
+	List<Joueur> listAfter(Joueur after, int count, PlayerFilter filter);
+
+	/**
+	 * Get a page of players in the order of the names, ending before a player.
+	 *
+	 * @param before
+	 *            First player of the next page, null to end with the last player.
+	 * @param count
+	 *            Maximum number of players.
+	 * @param filter
+	 *            The players kept.
+	 * @return List<Joueur> The players sorted by name.
+	 */
+	List<Joueur> listBefore(Joueur before, int count, PlayerFilter filter);
+
+	/**
+	 * Get a page of players in the order of the names, starting with the first name that comes at or after a prefix.
+	 *
+	 * @param prefix
+	 *            Beginning of a name.
+	 * @param count
+	 *            Maximum number of players.
+	 * @param filter
+	 *            The players kept.
+	 * @return List<Joueur> The players sorted by name.
+	 */
+	List<Joueur> listFromName(String prefix, int count, PlayerFilter filter);
+
+	/**
+	 * Find the players who have cards published between two years.
+	 *
+	 * @param fromYear
+	 *            First year, included.
+	 * @param toYear
+	 *            Last year, included.
+	 * @return List<Joueur> The players sorted by name.
+	 */
+	List<Joueur> findByYear(int fromYear, int toYear);
+
+	/**
+	 * Count the cards published between two years.
+	 *
+	 * @param fromYear
+	 *            First year, included.
+	 * @param toYear
+	 *            Last year, included.
+	 * @return long Number of cards.
+	 */
+	long countCartesByYear(int fromYear, int toYear);
+
+	/**
+	 * Find the players who have cards of a team.
+	 *
+	 * @param nomEquipe
+	 *            Name of the team.
+	 * @return List<Joueur> The players sorted by name.
+	 */
+	List<Joueur> findByTeam(String nomEquipe);
+
+	/**
+	 * Make sure all the changes are on the disk, waiting for the save to be done.
+	 *
+	 * @throws FailedToSaveInventoryException
+	 */
+	void save() throws FailedToSaveInventoryException;
+
+	/**
+	 * Ask for a save in the background and return right away. The saves asked while another one is waiting are done
+	 * together.
+	 *
+	 * @return CompletableFuture<Void> Completed once the changes made before the call are on the disk, or with the
+	 *         error of the save.
+	 */
+	CompletableFuture<Void> saveAsync();
+
+	/**
+	 * Wait for the last save asked to be done, so the changes made before it are on the disk.
+	 *
+	 * @throws FailedToSaveInventoryException
+	 *             The last save failed.
+	 */
+	void awaitDurable() throws FailedToSaveInventoryException;
+
+	/**
+	 * Save the inventory, wait for the save to be done and release the resources, the service can't be used after.
+	 *
+	 * @throws FailedToSaveInventoryException
+	 */
+	void close() throws FailedToSaveInventoryException;
+}
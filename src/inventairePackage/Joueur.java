@@ -1,16 +1,41 @@
 package inventairePackage;
 
 import inventairePackage.exceptions.InvalidParameterException;
+import inventairePackage.utils.QuotedFields;
+import inventairePackage.utils.SortedLists;
 import inventairePackage.utils.Strings;
 
+import java.io.IOException;
+import java.text.CollationKey;
+import java.text.Collator;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Locale;
 
 public class Joueur implements Comparable<Joueur>
 {
+	private static final CarteComparateur CARD_COMPARATOR = new CarteComparateur();
+	// A Collator can't be used by several threads at the same time, each thread has its own
+	private static final ThreadLocal<Collator> COLLATOR = new ThreadLocal<Collator>() {
+		@Override
+		protected Collator initialValue()
+		{
+			return Collator.getInstance(Locale.CANADA_FRENCH);
+		}
+	};
+
 	private String cle;
 	private String nomJoueur;
+	// Key of the name for the French order, computed once so the comparisons only compare the keys
+	private CollationKey nomCollationKey;
 	private ArrayList<Carte> cards = new ArrayList<Carte>();
+	// Cards not read yet from the storage, cards is null while they are set
+	private LazyCards lazyCards;
+	private CarteIndex carteIndex;
+
+	private Joueur()
+	{
+	}
 
 	public Joueur(String cle, String nomJoueur) throws InvalidParameterException
 	{
@@ -18,6 +43,74 @@ public class Joueur implements Comparable<Joueur>
 		setNomJoueur(nomJoueur);
 	}
 
+	/**
+	 * Constructor of a player whose cards are read only when they are needed.
+	 * 
+	 * @param cle
+	 *            Key of the player.
+	 * @param nomJoueur
+	 *            Name of the player.
+	 * @param lazyCards
+	 *            Where his cards are read.
+	 * @throws InvalidParameterException
+	 */
+	public Joueur(String cle, String nomJoueur, LazyCards lazyCards) throws InvalidParameterException
+	{
+		this(cle, nomJoueur);
+		this.cards = null;
+		this.lazyCards = lazyCards;
+	}
+
+	/**
+	 * Copy constructor. The copy has its own list of cards, so adding cards to one doesn't change the other.
+	 * 
+	 * @param other
+	 *            The player to copy.
+	 */
+	public Joueur(Joueur other)
+	{
+		this.cle = other.cle;
+		this.nomJoueur = other.nomJoueur;
+		this.nomCollationKey = other.nomCollationKey;
+		if (other.lazyCards != null) {
+			this.cards = null;
+			this.lazyCards = other.lazyCards;
+		} else {
+			this.cards.addAll(other.cards);
+		}
+	}
+
+	/**
+	 * Copy of the player without his cards.
+	 * 
+	 * @return Joueur A player with the same key and name.
+	 */
+	Joueur withoutCartes()
+	{
+		Joueur copy = new Joueur();
+		copy.cle = cle;
+		copy.nomJoueur = nomJoueur;
+		copy.nomCollationKey = nomCollationKey;
+		return copy;
+	}
+
+	/**
+	 * Position in the order of the names where the players whose name starts with a prefix begin. It has no key, so
+	 * it comes before every player with the same name.
+	 * 
+	 * @param nomJoueur
+	 *            Beginning of a name.
+	 * @return Joueur A player that is only used to be compared.
+	 */
+	static Joueur positionOfName(String nomJoueur)
+	{
+		Joueur position = new Joueur();
+		position.cle = "";
+		position.nomJoueur = nomJoueur;
+		position.nomCollationKey = COLLATOR.get().getCollationKey(nomJoueur);
+		return position;
+	}
+
 	/**
 	 * Get the username of the player.
 	 * 
@@ -66,6 +159,7 @@ public class Joueur implements Comparable<Joueur>
 			throw new InvalidParameterException("nomJoueur", "cannot be null or empty");
 		}
 		this.nomJoueur = nomJoueur;
+		this.nomCollationKey = COLLATOR.get().getCollationKey(nomJoueur);
 	}
 
 	/**
@@ -75,7 +169,7 @@ public class Joueur implements Comparable<Joueur>
 	 */
 	public int getNombreCartes()
 	{
-		return cards.size();
+		return lazyCards != null ? lazyCards.size() : cards.size();
 	}
 
 	/**
@@ -92,18 +186,61 @@ public class Joueur implements Comparable<Joueur>
 			throw new InvalidParameterException("card", "cannot be null");
 		}
 
-		cards.add(card);
-		cards.sort(new CarteComparateur());
+		if (lazyCards != null) {
+			// The player gets his own list to change it
+			cards = new ArrayList<Carte>(lazyCards.load());
+			lazyCards = null;
+		}
+		SortedLists.insert(cards, card, CARD_COMPARATOR);
+		if (carteIndex != null) {
+			carteIndex.add(this, card);
+		}
+	}
+
+	/**
+	 * Read the cards not loaded yet from another place that has the same cards. Nothing changes if the cards are
+	 * loaded.
+	 * 
+	 * @param lazyCards
+	 *            Where the cards are read from now.
+	 */
+	void replaceLazyCards(LazyCards lazyCards)
+	{
+		if (this.lazyCards != null) {
+			this.lazyCards = lazyCards;
+		}
+	}
+
+	/**
+	 * Get the index that follows the cards of this player.
+	 * 
+	 * @return CarteIndex The index or null.
+	 */
+	CarteIndex getCarteIndex()
+	{
+		return carteIndex;
+	}
+
+	/**
+	 * Set the index that follows the cards of this player.
+	 * 
+	 * @param carteIndex
+	 *            The index or null.
+	 */
+	void setCarteIndex(CarteIndex carteIndex)
+	{
+		this.carteIndex = carteIndex;
 	}
 
 	/**
-	 * Get all the cards for this player.
+	 * Get all the cards for this player. The cards of a player loaded lazily are read from the storage file the first
+	 * time, and again if the cache dropped them.
 	 * 
 	 * @return ArrayList<Carte> All the cards for this player.
 	 */
 	public final ArrayList<Carte> getCartes()
 	{
-		return cards;
+		return lazyCards != null ? lazyCards.load() : cards;
 	}
 
 	/**
@@ -113,34 +250,53 @@ public class Joueur implements Comparable<Joueur>
 	 */
 	public String toCSVEntryFormat()
 	{
-		StringBuffer buffer = new StringBuffer();
+		StringBuilder buffer = new StringBuilder(64 + 48 * getNombreCartes());
+		try {
+			appendCSVEntry(buffer);
+		} catch (IOException e) {
+			// A StringBuilder never fails
+			throw new IllegalStateException(e);
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * Write the player and his cards in the storage format, without the end of line. Nothing is created for the
+	 * fields, so a whole inventory can be written through the same buffer.
+	 * 
+	 * @param out
+	 *            Where the player is written.
+	 * @throws IOException
+	 */
+	public void appendCSVEntry(Appendable out) throws IOException
+	{
+		// Read lazy cards before anything is written, so a failure doesn't leave half a player
+		ArrayList<Carte> cards = getCartes();
 
 		// Put useful informations
-		buffer.append("\"" + cle + "\";");
-		buffer.append("\"" + nomJoueur + "\";");
-		buffer.append("\"" + cards.size() + "\";");
+		QuotedFields.appendQuoted(out, cle);
+		QuotedFields.appendQuoted(out, nomJoueur);
+		QuotedFields.appendQuoted(out, cards.size());
 
 		// Print all the cards
-		for (Carte card : cards) {
-			buffer.append("\"" + card.getTitreCarte() + "\";");
-			buffer.append("\"" + card.getNomEquipe() + "\";");
-			buffer.append("\"" + card.getAnneeSortie() + "\";");
+		for (int i = 0; i < cards.size(); ++i) {
+			Carte card = cards.get(i);
+			QuotedFields.appendQuoted(out, card.getTitreCarte());
+			QuotedFields.appendQuoted(out, card.getNomEquipe());
+			QuotedFields.appendQuoted(out, card.getAnneeSortie());
 		}
-
-		return buffer.toString();
 	}
 
+	/**
+	 * Compare the players by name in the French order of the collator: the letters without their accents decide first
+	 * ("Érika" comes before "Félix"), then the accents ("Eric" before "Éric"), then the case ("eric" before "Eric").
+	 * Players with the same name are compared by key, two players are equal only if they have the same key.
+	 */
 	@Override
 	public int compareTo(Joueur o)
 	{
-		for (int i = 0; i < Math.min(getNomJoueur().length(), o.getNomJoueur().length()); ++i) {
-			if (o.getNomJoueur().charAt(i) < getNomJoueur().charAt(i)) {
-				return 1;
-			} else if (o.getNomJoueur().charAt(i) > getNomJoueur().charAt(i)) {
-				return -1;
-			}
-		}
-		return 0;
+		int result = nomCollationKey.compareTo(o.nomCollationKey);
+		return result != 0 ? result : cle.compareTo(o.cle);
 	}
 }
 
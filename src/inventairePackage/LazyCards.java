@@ -0,0 +1,26 @@
+package inventairePackage;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+
+/**
+ * Cards of a player that stay in the storage file until they are needed.
+ */
+public interface LazyCards
+{
+	/**
+	 * Get the number of cards, without reading them.
+	 *
+	 * @return int Number of cards.
+	 */
+	int size();
+
+	/**
+	 * Read the cards, or get them from a cache.
+	 *
+	 * @return ArrayList<Carte> The cards sorted like Joueur sorts them, the list must not be changed.
+	 * @throws UncheckedIOException
+	 *             The cards couldn't be read or are malformed.
+	 */
+	ArrayList<Carte> load();
+}
@@ -0,0 +1,95 @@
+package inventairePackage;
+
+/**
+ * What was done with the players added in bulk to an inventory.
+ */
+public class MergeResult
+{
+	private int added = 0;
+	private int replaced = 0;
+	private int merged = 0;
+	private int skipped = 0;
+	private int failed = 0;
+
+	/**
+	 * Get the number of new players added.
+	 *
+	 * @return int Number of players.
+	 */
+	public int getAdded()
+	{
+		return added;
+	}
+
+	/**
+	 * Get the number of players that replaced a player with the same key.
+	 *
+	 * @return int Number of players.
+	 */
+	public int getReplaced()
+	{
+		return replaced;
+	}
+
+	/**
+	 * Get the number of players whose cards were added to a player with the same key.
+	 *
+	 * @return int Number of players.
+	 */
+	public int getMerged()
+	{
+		return merged;
+	}
+
+	/**
+	 * Get the number of players ignored because a player with the same key exists.
+	 *
+	 * @return int Number of players.
+	 */
+	public int getSkipped()
+	{
+		return skipped;
+	}
+
+	/**
+	 * Get the number of players not saved because the inventory couldn't be written, they are not in it.
+	 *
+	 * @return int Number of players.
+	 */
+	public int getFailed()
+	{
+		return failed;
+	}
+
+	void countAdded()
+	{
+		++added;
+	}
+
+	void countReplaced()
+	{
+		++replaced;
+	}
+
+	void countMerged()
+	{
+		++merged;
+	}
+
+	void countSkipped()
+	{
+		++skipped;
+	}
+
+	void countFailed()
+	{
+		++failed;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("%d added, %d replaced, %d merged, %d skipped, %d failed", added, replaced, merged, skipped,
+				failed);
+	}
+}
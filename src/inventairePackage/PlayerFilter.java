@@ -0,0 +1,16 @@
+package inventairePackage;
+
+/**
+ * Choose the players to show in a list.
+ */
+public interface PlayerFilter
+{
+	/**
+	 * Check if a player is kept.
+	 *
+	 * @param joueur
+	 *            The player.
+	 * @return boolean true if the player is kept.
+	 */
+	boolean accept(Joueur joueur);
+}
@@ -0,0 +1,76 @@
+package inventairePackage;
+
+import java.util.List;
+
+/**
+ * Filters of the players by their cards.
+ */
+public class PlayerFilters
+{
+	/**
+	 * Keep every player.
+	 *
+	 * @return PlayerFilter The filter.
+	 */
+	public static PlayerFilter all()
+	{
+		return new PlayerFilter() {
+			@Override
+			public boolean accept(Joueur joueur)
+			{
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Keep the players who have cards of a team.
+	 *
+	 * @param nomEquipe
+	 *            Name of the team.
+	 * @return PlayerFilter The filter.
+	 */
+	public static PlayerFilter byTeam(final String nomEquipe)
+	{
+		return new PlayerFilter() {
+			@Override
+			public boolean accept(Joueur joueur)
+			{
+				List<Carte> cartes = joueur.getCartes();
+				for (int i = 0; i < cartes.size(); ++i) {
+					if (cartes.get(i).getNomEquipe().equals(nomEquipe)) {
+						return true;
+					}
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Keep the players who have cards published between two years.
+	 *
+	 * @param fromYear
+	 *            First year, included.
+	 * @param toYear
+	 *            Last year, included.
+	 * @return PlayerFilter The filter.
+	 */
+	public static PlayerFilter byYear(final int fromYear, final int toYear)
+	{
+		return new PlayerFilter() {
+			@Override
+			public boolean accept(Joueur joueur)
+			{
+				List<Carte> cartes = joueur.getCartes();
+				for (int i = 0; i < cartes.size(); ++i) {
+					int annee = cartes.get(i).getAnneeSortie();
+					if (annee >= fromYear && annee <= toYear) {
+						return true;
+					}
+				}
+				return false;
+			}
+		};
+	}
+}
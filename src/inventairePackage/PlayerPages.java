@@ -0,0 +1,91 @@
+package inventairePackage;
+
+import java.util.List;
+
+/**
+ * Go through the players of an inventory one page at a time, in the order of the names. The page remembers its first
+ * and last players, the next and previous pages are read from them.
+ */
+public class PlayerPages
+{
+	private final InventoryService service;
+	private final int pageSize;
+	private final PlayerFilter filter;
+	private List<Joueur> page;
+
+	/**
+	 * Constructor, the current page is the first one.
+	 *
+	 * @param service
+	 *            The inventory.
+	 * @param pageSize
+	 *            Number of players of a page.
+	 * @param filter
+	 *            The players shown.
+	 */
+	public PlayerPages(InventoryService service, int pageSize, PlayerFilter filter)
+	{
+		this.service = service;
+		this.pageSize = pageSize;
+		this.filter = filter;
+		this.page = service.listAfter(null, pageSize, filter);
+	}
+
+	/**
+	 * Get the players of the current page.
+	 *
+	 * @return List<Joueur> The players sorted by name, empty if no player is shown.
+	 */
+	public List<Joueur> getPage()
+	{
+		return page;
+	}
+
+	/**
+	 * Go to the next page, nothing changes on the last page.
+	 *
+	 * @return boolean true if the page changed.
+	 */
+	public boolean next()
+	{
+		if (page.isEmpty()) {
+			return false;
+		}
+		return show(service.listAfter(page.get(page.size() - 1), pageSize, filter));
+	}
+
+	/**
+	 * Go to the previous page, nothing changes on the first page.
+	 *
+	 * @return boolean true if the page changed.
+	 */
+	public boolean previous()
+	{
+		if (page.isEmpty()) {
+			return false;
+		}
+		return show(service.listBefore(page.get(0), pageSize, filter));
+	}
+
+	/**
+	 * Go to the page starting with the first name that comes at or after a prefix. Nothing changes if no name comes
+	 * after it.
+	 *
+	 * @param prefix
+	 *            Beginning of a name.
+	 * @return boolean true if the page changed.
+	 */
+	public boolean jumpTo(String prefix)
+	{
+		return show(service.listFromName(prefix, pageSize, filter));
+	}
+
+	private boolean show(List<Joueur> players)
+	{
+		if (players.isEmpty()) {
+			return false;
+		}
+		page = players;
+		return true;
+	}
+}
@@ -0,0 +1,819 @@
+package inventairePackage;
+
+import inventairePackage.exceptions.DuplicatePlayerException;
+import inventairePackage.exceptions.FailedToCreateStorageFileException;
+import inventairePackage.exceptions.FailedToReadStorageException;
+import inventairePackage.exceptions.FailedToSaveInventoryException;
+import inventairePackage.exceptions.InvalidParameterException;
+import inventairePackage.exceptions.InvalidStorageFileNameException;
+import inventairePackage.exceptions.MalformedStorageException;
+import inventairePackage.exceptions.PlayerNotFoundException;
+import inventairePackage.metrics.Metrics;
+import inventairePackage.metrics.OperationMetrics;
+import inventairePackage.storage.LazyTextStorageFormat;
+import inventairePackage.storage.LoadProgress;
+import inventairePackage.storage.PlayerConsumer;
+import inventairePackage.storage.SavePipeline;
+import inventairePackage.storage.StorageFormat;
+import inventairePackage.storage.StorageJournal;
+import inventairePackage.utils.Logs;
+import inventairePackage.utils.Strings;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Inventory kept in memory and saved to a storage file. Every change is written to the journal of the storage file
+ * right away, before it is published. The saves run on a background thread: they force the journal to the disk and
+ * start to rewrite the storage file once the journal gets too big. Once a write to the journal failed, the journal may
+ * end with part of a record: the changes are refused and the saves fail until the program is started again.
+ *
+ * The inventory can be used from many threads. The players it publishes are never changed: a change makes a new copy
+ * of the player and replaces him in the indexes, so the reads don't take any lock. The changes to a player are done one
+ * at a time, under the lock of the stripe of his key, and the changes to different players run at the same time. A
+ * snapshot for the storage file stops the changes only while it copies the references to the players.
+ *
+ * With a LazyTextStorageFormat, the players are loaded without their cards and the cards are not indexed: the first
+ * search by card after a change reads the cards of every player into columns (see CardColumns), the searches scan the
+ * columns and the players read their cards from them instead of the storage file.
+ */
+public class StorageInventoryService implements InventoryService
+{
+	private static Logger logger = Logger.getLogger("InventoryManager");
+	private static final JoueurComparateur PLAYER_COMPARATOR = new JoueurComparateur();
+	private static final OperationMetrics LOOKUP_METRICS = Metrics.get("lookup");
+	private static final OperationMetrics LOAD_METRICS = Metrics.get("storage.load");
+	private static final OperationMetrics SAVE_METRICS = Metrics.get("storage.save");
+	// Size of the journal after which a save writes a new storage file in the background
+	private static final long JOURNAL_COMPACTION_THRESHOLD = 16L * 1024 * 1024;
+	// Number of locks shared by the keys, a power of 2
+	private static final int LOCK_STRIPES = 64;
+	private final ConcurrentHashMap<String, Joueur> playersByCle = new ConcurrentHashMap<String, Joueur>();
+	// The keys are copies of the players without their cards, they stay while the players are replaced
+	private final ConcurrentSkipListMap<Joueur, Joueur> playersByName = new ConcurrentSkipListMap<Joueur, Joueur>(
+			PLAYER_COMPARATOR);
+	// Null when the cards are loaded lazily, the searches by card then go through columns of all the cards
+	private final CarteIndex carteIndex;
+	// Built by the first search by card after a change, the players read their cards from the columns after
+	private final ReentrantLock cardColumnsLock = new ReentrantLock();
+	private final AtomicLong cardChanges = new AtomicLong();
+	private CardColumns cardColumns;
+	private long cardColumnsVersion;
+	private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+	// Shared by the changes, taken alone by a snapshot so it sees all the changes logged before the journal rotation
+	private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+	private File storageFile;
+	private StorageFormat storageFormat;
+	private StorageJournal journal;
+	// First failure of the journal, the journal is not written anymore after it
+	private volatile IOException journalFailure;
+	private SavePipeline savePipeline;
+	private ExecutorService compactor;
+	private Future<?> compaction;
+
+	/**
+	 * Constructor, creates the storage file if it doesn't exist or loads it.
+	 *
+	 * @param storageFileNameWithoutExtention
+	 *            Name of the file without extension.
+	 * @param storageFormat
+	 *            Format of the storage file, it gives the extension of the file.
+	 * @throws InvalidStorageFileNameException
+	 * @throws FailedToCreateStorageFileException
+	 * @throws FailedToReadStorageException
+	 */
+	public StorageInventoryService(String storageFileNameWithoutExtention, StorageFormat storageFormat)
+			throws InvalidStorageFileNameException,
+				FailedToCreateStorageFileException,
+				FailedToReadStorageException
+	{
+		for (int i = 0; i < stripes.length; ++i) {
+			stripes[i] = new ReentrantLock();
+		}
+		// Indexing the cards would read all of them
+		carteIndex = storageFormat instanceof LazyTextStorageFormat ? null : new CarteIndex();
+
+		// Make sure the name given is valid
+		if (Strings.isNullOrEmpty(storageFileNameWithoutExtention)) {
+			throw new InvalidStorageFileNameException(storageFileNameWithoutExtention);
+		}
+
+		// Create file if it didn't exists or load it content
+		this.storageFormat = storageFormat;
+		storageFile = new File(storageFileNameWithoutExtention + storageFormat.getExtension());
+		if (!storageFile.exists()) {
+			try {
+				storageFile.createNewFile();
+			} catch (IOException e) {
+				throw new FailedToCreateStorageFileException(storageFileNameWithoutExtention, e);
+			}
+		} else {
+			loadPlayersFromStorage();
+		}
+		openJournal();
+		savePipeline = new SavePipeline("inventory-save", new SavePipeline.Saver() {
+			@Override
+			public void save() throws IOException
+			{
+				requireJournal();
+				journal.sync();
+				if (journal.size() > JOURNAL_COMPACTION_THRESHOLD) {
+					startCompaction();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Get the storage file of the inventory.
+	 *
+	 * @return File The storage file.
+	 */
+	public File getStorageFile()
+	{
+		return storageFile;
+	}
+
+	@Override
+	public Joueur findByCle(String cle)
+	{
+		long start = System.nanoTime();
+		Joueur joueur = playersByCle.get(cle);
+		LOOKUP_METRICS.record(start);
+		return joueur;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws UncheckedIOException
+	 *             The change couldn't be written to the journal, it was not made.
+	 */
+	@Override
+	public void addPlayer(Joueur joueur) throws DuplicatePlayerException
+	{
+		// The caller keeps his player, the inventory publishes its own copy
+		Joueur player = new Joueur(joueur);
+		Lock lock = lockChanges(player.getCle());
+		try {
+			if (playersByCle.containsKey(player.getCle())) {
+				throw new DuplicatePlayerException(player.getCle());
+			}
+			requireJournal();
+			journal.logAdd(player);
+			indexPlayer(player);
+		} catch (IOException e) {
+			throw journalFailed(e);
+		} finally {
+			unlockChanges(lock);
+		}
+	}
+
+	/**
+	 * {@inheritDoc} The players are sorted by name, so they are inserted in the order of the list by name. A player
+	 * whose change couldn't be written to the journal is counted as failed and is not in the inventory.
+	 */
+	@Override
+	public MergeResult mergePlayers(List<Joueur> joueurs, DuplicatePolicy policy)
+	{
+		List<Joueur> sorted = new ArrayList<Joueur>(joueurs);
+		sorted.sort(PLAYER_COMPARATOR);
+		MergeResult result = new MergeResult();
+		for (Joueur joueur : sorted) {
+			Joueur player = new Joueur(joueur);
+			Lock lock = lockChanges(player.getCle());
+			try {
+				Joueur current = playersByCle.get(player.getCle());
+				if (current == null) {
+					requireJournal();
+					journal.logAdd(player);
+					indexPlayer(player);
+					result.countAdded();
+				} else if (policy == DuplicatePolicy.REPLACE) {
+					requireJournal();
+					journal.logUpdate(player);
+					replacePlayer(current, player);
+					result.countReplaced();
+				} else if (policy == DuplicatePolicy.MERGE) {
+					Joueur merged = new Joueur(current);
+					for (Carte carte : player.getCartes()) {
+						merged.addCarte(carte);
+					}
+					requireJournal();
+					journal.logAddCards(merged);
+					replacePlayer(current, merged);
+					result.countMerged();
+				} else {
+					result.countSkipped();
+				}
+			} catch (DuplicatePlayerException e) {
+				throw new IllegalStateException("Player added by another thread under the lock of his key.", e);
+			} catch (InvalidParameterException e) {
+				throw new IllegalStateException("Invalid card in a valid player.", e);
+			} catch (IOException e) {
+				// The saves report the failure of the journal
+				journalFailed(e);
+				result.countFailed();
+			} finally {
+				unlockChanges(lock);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws UncheckedIOException
+	 *             The change couldn't be written to the journal, it was not made.
+	 */
+	@Override
+	public void addCards(String cle, List<Carte> cartes) throws PlayerNotFoundException, InvalidParameterException
+	{
+		if (cartes.contains(null)) {
+			throw new InvalidParameterException("card", "cannot be null");
+		}
+		Lock lock = lockChanges(cle);
+		try {
+			Joueur current = requirePlayer(cle);
+			if (cartes.isEmpty()) {
+				return;
+			}
+			Joueur player = new Joueur(current);
+			for (Carte carte : cartes) {
+				player.addCarte(carte);
+			}
+			requireJournal();
+			journal.logAddCards(player);
+			replacePlayer(current, player);
+		} catch (IOException e) {
+			throw journalFailed(e);
+		} finally {
+			unlockChanges(lock);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws UncheckedIOException
+	 *             The change couldn't be written to the journal, it was not made.
+	 */
+	@Override
+	public void updateName(String cle, String nomJoueur) throws PlayerNotFoundException, InvalidParameterException
+	{
+		Lock lock = lockChanges(cle);
+		try {
+			Joueur current = requirePlayer(cle);
+			Joueur player = new Joueur(current);
+			player.setNomJoueur(nomJoueur);
+			requireJournal();
+			journal.logUpdate(player);
+			replacePlayer(current, player);
+		} catch (IOException e) {
+			throw journalFailed(e);
+		} finally {
+			unlockChanges(lock);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws UncheckedIOException
+	 *             The change couldn't be written to the journal, it was not made.
+	 */
+	@Override
+	public void delete(String cle) throws PlayerNotFoundException
+	{
+		Lock lock = lockChanges(cle);
+		try {
+			Joueur current = requirePlayer(cle);
+			requireJournal();
+			journal.logDelete(cle);
+			removePlayer(current);
+		} catch (IOException e) {
+			throw journalFailed(e);
+		} finally {
+			unlockChanges(lock);
+		}
+	}
+
+	/**
+	 * {@inheritDoc} The list is a copy made while other threads can change the inventory, it has every player that was
+	 * not changed during the copy.
+	 */
+	@Override
+	public List<Joueur> list()
+	{
+		return Collections.unmodifiableList(new ArrayList<Joueur>(playersByName.values()));
+	}
+
+	/**
+	 * {@inheritDoc} The players changed during the iteration may be given before or after their change.
+	 */
+	@Override
+	public void forEachPlayer(Consumer<Joueur> consumer)
+	{
+		for (Joueur player : playersByName.values()) {
+			consumer.accept(player);
+		}
+	}
+
+	@Override
+	public List<Joueur> listAfter(Joueur after, int count, PlayerFilter filter)
+	{
+		Collection<Joueur> players = after == null ? playersByName.values() : playersByName.tailMap(after, false)
+				.values();
+		return page(players, count, filter);
+	}
+
+	@Override
+	public List<Joueur> listBefore(Joueur before, int count, PlayerFilter filter)
+	{
+		Collection<Joueur> players = before == null ? playersByName.descendingMap().values() : playersByName
+				.headMap(before, false).descendingMap().values();
+		List<Joueur> found = page(players, count, filter);
+		Collections.reverse(found);
+		return found;
+	}
+
+	@Override
+	public List<Joueur> listFromName(String prefix, int count, PlayerFilter filter)
+	{
+		return page(playersByName.tailMap(Joueur.positionOfName(prefix), true).values(), count, filter);
+	}
+
+	/**
+	 * Take the first players accepted by the filter.
+	 */
+	private static List<Joueur> page(Collection<Joueur> players, int count, PlayerFilter filter)
+	{
+		List<Joueur> found = new ArrayList<Joueur>(Math.min(count, 1024));
+		Iterator<Joueur> iterator = players.iterator();
+		while (found.size() < count && iterator.hasNext()) {
+			Joueur joueur = iterator.next();
+			if (filter.accept(joueur)) {
+				found.add(joueur);
+			}
+		}
+		return found;
+	}
+
+	@Override
+	public List<Joueur> findByYear(int fromYear, int toYear)
+	{
+		if (carteIndex == null) {
+			return cardColumns().findPlayersByYear(fromYear, toYear);
+		}
+		List<Joueur> found = carteIndex.findPlayersByYear(fromYear, toYear);
+		found.sort(PLAYER_COMPARATOR);
+		return found;
+	}
+
+	@Override
+	public long countCartesByYear(int fromYear, int toYear)
+	{
+		if (carteIndex == null) {
+			return cardColumns().countByYear(fromYear, toYear);
+		}
+		return carteIndex.countCartesByYear(fromYear, toYear);
+	}
+
+	@Override
+	public List<Joueur> findByTeam(String nomEquipe)
+	{
+		if (carteIndex == null) {
+			return cardColumns().findPlayersByTeam(nomEquipe);
+		}
+		List<Joueur> found = carteIndex.findPlayersByTeam(nomEquipe);
+		found.sort(PLAYER_COMPARATOR);
+		return found;
+	}
+
+	/**
+	 * Get the columns of the cards of the players, built again if the inventory changed since the last time. A change
+	 * made while they are built is seen by the next search.
+	 *
+	 * @return CardColumns The columns, in the order of the names.
+	 */
+	private CardColumns cardColumns()
+	{
+		cardColumnsLock.lock();
+		try {
+			long version = cardChanges.get();
+			if (cardColumns == null || cardColumnsVersion != version) {
+				cardColumns = CardColumns.build(new ArrayList<Joueur>(playersByName.values()));
+				// Reading the cards of a player doesn't read the storage file anymore
+				cardColumns.shareCartes();
+				cardColumnsVersion = version;
+			}
+			return cardColumns;
+		} finally {
+			cardColumnsLock.unlock();
+		}
+	}
+
+	@Override
+	public void save() throws FailedToSaveInventoryException
+	{
+		try {
+			SavePipeline.await(savePipeline.request());
+		} catch (IOException e) {
+			logger.severe("Failed to save inventory to storage. " + e.getMessage());
+			throw new FailedToSaveInventoryException(storageFile.getName(), e);
+		}
+	}
+
+	@Override
+	public CompletableFuture<Void> saveAsync()
+	{
+		return savePipeline.request();
+	}
+
+	@Override
+	public void awaitDurable() throws FailedToSaveInventoryException
+	{
+		try {
+			requireJournal();
+			savePipeline.awaitLast();
+		} catch (IOException e) {
+			logger.severe("Failed to save inventory to storage. " + e.getMessage());
+			throw new FailedToSaveInventoryException(storageFile.getName(), e);
+		}
+	}
+
+	@Override
+	public void close() throws FailedToSaveInventoryException
+	{
+		try {
+			save();
+		} finally {
+			savePipeline.close();
+			waitForCompaction();
+			try {
+				journal.close();
+			} catch (IOException e) {
+				logger.severe("Failed to close journal. " + e.getMessage());
+			}
+			// The lazy formats keep the storage file open to read the cards
+			if (storageFormat instanceof Closeable) {
+				try {
+					((Closeable) storageFormat).close();
+				} catch (IOException e) {
+					logger.severe("Failed to close storage. " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Take the locks needed to change a player: the lock shared with the other changes, so no snapshot is taken
+	 * meanwhile, and the lock of the stripe of his key.
+	 *
+	 * @param cle
+	 *            Key of the player.
+	 * @return Lock The lock of the stripe, to give to unlockChanges.
+	 */
+	private Lock lockChanges(String cle)
+	{
+		snapshotLock.readLock().lock();
+		// Spread the bits of the hash like HashMap does before keeping the lowest ones
+		int hash = cle.hashCode();
+		Lock lock = stripes[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+		lock.lock();
+		return lock;
+	}
+
+	private void unlockChanges(Lock lock)
+	{
+		lock.unlock();
+		snapshotLock.readLock().unlock();
+	}
+
+	/**
+	 * Check that the journal can still be written and that the changes written to it are all in the inventory.
+	 *
+	 * @throws IOException
+	 *             A write to the journal failed before.
+	 */
+	private void requireJournal() throws IOException
+	{
+		IOException failure = journalFailure;
+		if (failure != null) {
+			throw new IOException(String.format("Journal of '%s' failed, the changes are not saved anymore. %s",
+					storageFile.getName(), failure.getMessage()), failure);
+		}
+	}
+
+	/**
+	 * Put the inventory in the failed state after a write to the journal failed, the change was not published.
+	 *
+	 * @param e
+	 *            The failure of the journal, or of requireJournal.
+	 * @return UncheckedIOException The error to throw to the caller of the change.
+	 */
+	private UncheckedIOException journalFailed(IOException e)
+	{
+		if (journalFailure == null) {
+			logger.severe("Failed to write to journal. " + e.getMessage());
+			journalFailure = e;
+		}
+		return new UncheckedIOException(e);
+	}
+
+	/**
+	 * Loads all the players and cards from storage.
+	 *
+	 * @throws FailedToReadStorageException
+	 */
+	private void loadPlayersFromStorage() throws FailedToReadStorageException
+	{
+		Logs.fine(logger, "Loading players and card from storage at '%s'.", storageFile.getName());
+		long start = System.nanoTime();
+		LoadProgress progress = new LoadProgress(logger, storageFile, new PlayerConsumer() {
+			@Override
+			public void accept(Joueur player, int lineNumber) throws MalformedStorageException
+			{
+				try {
+					indexPlayer(player);
+				} catch (DuplicatePlayerException e) {
+					throw new MalformedStorageException(lineNumber, e);
+				}
+			}
+		});
+		try {
+			storageFormat.load(storageFile, progress);
+		} catch (IOException | MalformedStorageException e) {
+			LOAD_METRICS.recordError();
+			logger.severe("Failed to read storage. " + e.getMessage());
+			throw new FailedToReadStorageException(storageFile.getName(), e);
+		}
+		progress.finish();
+		LOAD_METRICS.record(start, progress.getRecords(), storageFile.length());
+	}
+
+	/**
+	 * Replay the operations that were not compacted in the storage file yet and open the journal for the next ones.
+	 *
+	 * @throws FailedToReadStorageException
+	 */
+	private void openJournal() throws FailedToReadStorageException
+	{
+		journal = new StorageJournal(storageFile);
+		try {
+			journal.replay(new StorageJournal.Replayer() {
+				@Override
+				public void put(Joueur player)
+				{
+					Joueur existing = playersByCle.get(player.getCle());
+					if (existing != null) {
+						replacePlayer(existing, player);
+					} else {
+						putInIndexes(player);
+					}
+				}
+
+				@Override
+				public void delete(String cle)
+				{
+					Joueur existing = playersByCle.get(cle);
+					if (existing != null) {
+						removePlayer(existing);
+					}
+				}
+			});
+			journal.open();
+		} catch (IOException | MalformedStorageException e) {
+			logger.severe("Failed to replay journal. " + e.getMessage());
+			throw new FailedToReadStorageException(storageFile.getName(), e);
+		}
+
+		// A compaction was interrupted, finish it now
+		if (journal.hasRotatedJournal()) {
+			try {
+				savePlayersToStorage(storageFormat, storageFile, list());
+				journal.deleteRotatedJournal();
+			} catch (FailedToSaveInventoryException | IOException e) {
+				logger.severe("Failed to compact journal. " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Write the current inventory to the storage file in the background and empty the journal. Nothing is done if a
+	 * compaction is already running.
+	 */
+	private synchronized void startCompaction()
+	{
+		if (compaction != null && !compaction.isDone()) {
+			return;
+		}
+
+		// Copy the players now, the inventory can change while the copy is written. The published players are never
+		// changed, copying the references is enough.
+		final File file = storageFile;
+		final StorageFormat format = storageFormat;
+		final List<Joueur> snapshot;
+		snapshotLock.writeLock().lock();
+		try {
+			snapshot = new ArrayList<Joueur>(playersByName.values());
+			journal.rotate();
+		} catch (IOException e) {
+			logger.severe("Failed to rotate journal. " + e.getMessage());
+			return;
+		} finally {
+			snapshotLock.writeLock().unlock();
+		}
+
+		if (compactor == null) {
+			compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable)
+				{
+					Thread thread = new Thread(runnable, "journal-compaction");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		compaction = compactor.submit(new Runnable() {
+			@Override
+			public void run()
+			{
+				try {
+					savePlayersToStorage(format, file, snapshot);
+					journal.deleteRotatedJournal();
+					Logs.fine(logger, "Journal compacted in '%s'.", file.getName());
+				} catch (FailedToSaveInventoryException | IOException e) {
+					logger.severe("Failed to compact journal. " + e.getMessage());
+				}
+			}
+		});
+	}
+
+	/**
+	 * Wait for the compaction running in the background to finish.
+	 */
+	private void waitForCompaction()
+	{
+		Future<?> running;
+		synchronized (this) {
+			running = compaction;
+		}
+		if (running == null) {
+			return;
+		}
+		try {
+			running.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			logger.severe("Failed to compact journal. " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Find a player with his key or fail.
+	 */
+	private Joueur requirePlayer(String cle) throws PlayerNotFoundException
+	{
+		Joueur joueur = playersByCle.get(cle);
+		if (joueur == null) {
+			throw new PlayerNotFoundException(cle);
+		}
+		return joueur;
+	}
+
+	/**
+	 * Add a player to the key index and his cards to the card indexes.
+	 *
+	 * @param player
+	 *            Player to index.
+	 * @throws DuplicatePlayerException
+	 *             A player with the same key is already indexed.
+	 */
+	private void indexPlayer(Joueur player) throws DuplicatePlayerException
+	{
+		if (playersByCle.putIfAbsent(player.getCle(), player) != null) {
+			throw new DuplicatePlayerException(player.getCle());
+		}
+		playersByName.put(player.withoutCartes(), player);
+		if (carteIndex != null) {
+			carteIndex.attach(player);
+		} else {
+			cardChanges.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Add a player to the indexes, replacing the player with the same key in the key index.
+	 *
+	 * @param player
+	 *            Player to index.
+	 */
+	private void putInIndexes(Joueur player)
+	{
+		playersByCle.put(player.getCle(), player);
+		playersByName.put(player.withoutCartes(), player);
+		if (carteIndex != null) {
+			carteIndex.attach(player);
+		} else {
+			cardChanges.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Replace a player by his new version in all the indexes.
+	 *
+	 * @param current
+	 *            The player in the inventory.
+	 * @param player
+	 *            His new version, with the same key.
+	 */
+	private void replacePlayer(Joueur current, Joueur player)
+	{
+		if (PLAYER_COMPARATOR.compare(current, player) == 0) {
+			playersByName.replace(current, player);
+		} else {
+			// Add the new version before removing the old one, so the player is always in the list by name
+			playersByName.put(player.withoutCartes(), player);
+			playersByName.remove(current);
+		}
+		playersByCle.put(player.getCle(), player);
+		if (carteIndex != null) {
+			carteIndex.replace(current, player);
+		} else {
+			cardChanges.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Remove a player from the inventory and from all the indexes.
+	 *
+	 * @param player
+	 *            Player to remove.
+	 */
+	private void removePlayer(Joueur player)
+	{
+		playersByCle.remove(player.getCle());
+		playersByName.remove(player);
+		if (carteIndex != null) {
+			carteIndex.detach(player);
+		} else {
+			cardChanges.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Save players and their cards to a storage file.
+	 *
+	 * @param format
+	 *            Format of the storage file.
+	 * @param file
+	 *            Where to save the players.
+	 * @param players
+	 *            The players to save.
+	 * @throws FailedToSaveInventoryException
+	 *             Failed to create the storage file, failed to write to file or anything else related to IO.
+	 */
+	public static void savePlayersToStorage(StorageFormat format, File file, List<Joueur> players)
+			throws FailedToSaveInventoryException
+	{
+		long start = System.nanoTime();
+		try {
+			format.save(file, players);
+		} catch (IOException e) {
+			SAVE_METRICS.recordError();
+			logger.severe("Failed to save inventory to storage. " + e.getMessage());
+			throw new FailedToSaveInventoryException(file.getName(), e);
+		} catch (UncheckedIOException e) {
+			// Cards loaded lazily that couldn't be read, the storage file was not replaced
+			SAVE_METRICS.recordError();
+			logger.severe("Failed to save inventory to storage. " + e.getCause().getMessage());
+			throw new FailedToSaveInventoryException(file.getName(), e.getCause());
+		}
+		SAVE_METRICS.record(start, players.size(), file.length());
+	}
+}
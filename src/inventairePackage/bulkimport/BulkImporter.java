@@ -0,0 +1,305 @@
+package inventairePackage.bulkimport;
+
+import inventairePackage.Carte;
+import inventairePackage.DuplicatePolicy;
+import inventairePackage.InventoryService;
+import inventairePackage.Joueur;
+import inventairePackage.export.ExportFormats;
+import inventairePackage.exceptions.InvalidParameterException;
+import inventairePackage.metrics.Metrics;
+import inventairePackage.metrics.OperationMetrics;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Import players in bulk from CSV or JSON Lines files, the formats of the export. The records are cut in chunks by one
+ * thread and the chunks are parsed and validated in parallel, then the valid players of all the files are given to the
+ * inventory in a single sorted merge. Only a few chunks wait to be parsed at the same time.
+ *
+ * A record that is malformed, has an invalid value or a control character (a new line in a name) is rejected with its
+ * line, the other records are still imported. A key can only be imported once: the rows of a CSV file with the same
+ * key are the cards of one player, any other record with a key already imported is rejected. The players already in
+ * the inventory are handled with a duplicate policy.
+ */
+public class BulkImporter
+{
+	private static final int CHUNK_SIZE = 4096;
+	// Chunks parsed ahead of the one being collected, for every thread of the pool
+	private static final int CHUNKS_AHEAD_PER_THREAD = 2;
+	private static final OperationMetrics METRICS = Metrics.get("bulkimport");
+
+	private final InventoryService service;
+	private final DuplicatePolicy policy;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructor using the common ForkJoinPool.
+	 *
+	 * @param service
+	 *            Inventory receiving the players.
+	 * @param policy
+	 *            What to do with a player whose key is already in the inventory.
+	 */
+	public BulkImporter(InventoryService service, DuplicatePolicy policy)
+	{
+		this(service, policy, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param service
+	 *            Inventory receiving the players.
+	 * @param policy
+	 *            What to do with a player whose key is already in the inventory.
+	 * @param pool
+	 *            Pool used to parse the chunks.
+	 */
+	public BulkImporter(InventoryService service, DuplicatePolicy policy, ForkJoinPool pool)
+	{
+		this.service = service;
+		this.policy = policy;
+		this.pool = pool;
+	}
+
+	/**
+	 * Import files, the format and the compression are found with the extension of every file. Nothing is imported if
+	 * a file can't be read.
+	 *
+	 * @param files
+	 *            Files to import, in this order.
+	 * @return ImportReport The records read, the rejects and the result of the merge.
+	 * @throws IOException
+	 *             The extension of a file is unknown or a file couldn't be read.
+	 */
+	public ImportReport importFiles(List<File> files) throws IOException
+	{
+		long start = System.nanoTime();
+		ImportReport report = new ImportReport();
+		Map<String, Imported> imported = new LinkedHashMap<String, Imported>();
+		long bytes = 0;
+		try {
+			for (File file : files) {
+				ImportFormat format = ImportFormats.fromFileName(file.getName());
+				if (format == null) {
+					throw new IOException(String.format("The format of file '%s' is unknown, use %s or %s (%s if "
+							+ "compressed).", file.getName(), CsvImportFormat.EXTENSION,
+							JsonLinesImportFormat.EXTENSION, ExportFormats.GZIP_EXTENSION));
+				}
+				readFile(file, format, report, imported);
+				bytes += file.length();
+			}
+		} catch (IOException e) {
+			METRICS.recordError();
+			throw e;
+		}
+		List<Joueur> players = new ArrayList<Joueur>(imported.size());
+		for (Imported player : imported.values()) {
+			players.add(player.player);
+		}
+		report.setMergeResult(service.mergePlayers(players, policy));
+		METRICS.record(start, report.getRecords(), bytes);
+		return report;
+	}
+
+	/**
+	 * Read the records of a file in chunks, parse them in the pool and collect the players in order.
+	 */
+	private void readFile(File file, ImportFormat format, ImportReport report, Map<String, Imported> imported)
+			throws IOException
+	{
+		InputStream input = Files.newInputStream(file.toPath());
+		if (ExportFormats.isGzip(file.getName())) {
+			input = new GZIPInputStream(input, 64 * 1024);
+		}
+		int maxAhead = Math.max(1, pool.getParallelism()) * CHUNKS_AHEAD_PER_THREAD;
+		Deque<ChunkTask> running = new ArrayDeque<ChunkTask>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8),
+				64 * 1024)) {
+			StringBuilder record = new StringBuilder(256);
+			int lineNumber = 1;
+			boolean first = true;
+			boolean endOfFile = false;
+			do {
+				while (!endOfFile && running.size() < maxAhead) {
+					List<String> records = new ArrayList<String>(CHUNK_SIZE);
+					int[] lineNumbers = new int[CHUNK_SIZE];
+					int lines;
+					while (records.size() < CHUNK_SIZE && (lines = format.readRecord(reader, record)) > 0) {
+						String text = record.toString();
+						if (!first || !format.isHeader(text)) {
+							lineNumbers[records.size()] = lineNumber;
+							records.add(text);
+						}
+						first = false;
+						lineNumber += lines;
+					}
+					endOfFile = records.size() < CHUNK_SIZE;
+					if (!records.isEmpty()) {
+						ChunkTask task = new ChunkTask(records, lineNumbers, format);
+						running.addLast(task);
+						pool.execute(task);
+					}
+				}
+				if (!running.isEmpty()) {
+					collect(file.getName(), format, join(running.removeFirst()), report, imported);
+				}
+			} while (!running.isEmpty());
+		} finally {
+			// Stop parsing after an error
+			for (ChunkTask task : running) {
+				task.cancel(false);
+			}
+		}
+	}
+
+	private static ChunkTask.Result join(ChunkTask task) throws IOException
+	{
+		try {
+			return task.join();
+		} catch (CancellationException e) {
+			throw new IOException("The import was cancelled.", e);
+		}
+	}
+
+	/**
+	 * Add the players of a chunk parsed and report its rejects. The cards of a key are joined when the records of the
+	 * file are cards.
+	 */
+	private static void collect(String fileName, ImportFormat format, ChunkTask.Result chunk, ImportReport report,
+			Map<String, Imported> imported)
+	{
+		report.countRecords(chunk.players.length);
+		for (int i = 0; i < chunk.players.length; ++i) {
+			Joueur player = chunk.players[i];
+			int lineNumber = chunk.lineNumbers[i];
+			if (player == null) {
+				report.reject(fileName, lineNumber, chunk.errors[i]);
+				continue;
+			}
+			Imported previous = imported.get(player.getCle());
+			if (previous == null) {
+				imported.put(player.getCle(), new Imported(player, fileName, lineNumber));
+			} else if (!format.hasRecordPerCard() || !previous.fileName.equals(fileName)) {
+				report.reject(fileName, lineNumber, String.format("Player '%s' is already imported from %s:%d.",
+						player.getCle(), previous.fileName, previous.lineNumber));
+			} else if (!previous.player.getNomJoueur().equals(player.getNomJoueur())) {
+				report.reject(fileName, lineNumber, String.format("Player '%s' is named '%s' on a previous line.",
+						player.getCle(), previous.player.getNomJoueur()));
+			} else {
+				try {
+					for (Carte carte : player.getCartes()) {
+						previous.player.addCarte(carte);
+					}
+				} catch (InvalidParameterException e) {
+					// Not possible, the cards were validated
+					report.reject(fileName, lineNumber, e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * A player imported and the record where his key was first seen.
+	 */
+	private static class Imported
+	{
+		private final Joueur player;
+		private final String fileName;
+		private final int lineNumber;
+
+		private Imported(Joueur player, String fileName, int lineNumber)
+		{
+			this.player = player;
+			this.fileName = fileName;
+			this.lineNumber = lineNumber;
+		}
+	}
+
+	/**
+	 * Parse and validate a chunk of records.
+	 */
+	private static class ChunkTask extends RecursiveTask<ChunkTask.Result>
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Player of every record, or null and the reason of its reject.
+		 */
+		private static class Result
+		{
+			private Joueur[] players;
+			private String[] errors;
+			private int[] lineNumbers;
+		}
+
+		private final List<String> records;
+		private final int[] lineNumbers;
+		private final ImportFormat format;
+
+		private ChunkTask(List<String> records, int[] lineNumbers, ImportFormat format)
+		{
+			this.records = records;
+			this.lineNumbers = lineNumbers;
+			this.format = format;
+		}
+
+		@Override
+		protected Result compute()
+		{
+			Result result = new Result();
+			result.players = new Joueur[records.size()];
+			result.errors = new String[records.size()];
+			result.lineNumbers = lineNumbers;
+			for (int i = 0; i < records.size(); ++i) {
+				try {
+					Joueur player = format.parseRecord(records.get(i));
+					requireNoControlCharacters(player);
+					result.players[i] = player;
+				} catch (InvalidParameterException e) {
+					result.errors[i] = e.getMessage();
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * Check the texts of a player and of his cards. A new line would be written as is in the storage file.
+		 */
+		private static void requireNoControlCharacters(Joueur player) throws InvalidParameterException
+		{
+			requireNoControlCharacters("cle", player.getCle());
+			requireNoControlCharacters("nomJoueur", player.getNomJoueur());
+			for (Carte carte : player.getCartes()) {
+				requireNoControlCharacters("titreCarte", carte.getTitreCarte());
+				requireNoControlCharacters("nomEquipe", carte.getNomEquipe());
+			}
+		}
+
+		private static void requireNoControlCharacters(String field, String value) throws InvalidParameterException
+		{
+			for (int i = 0; i < value.length(); ++i) {
+				if (Character.isISOControl(value.charAt(i))) {
+					throw new InvalidParameterException(field, String.format("contains the control character U+%04X",
+							(int) value.charAt(i)));
+				}
+			}
+		}
+	}
+}
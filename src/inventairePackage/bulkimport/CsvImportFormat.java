@@ -0,0 +1,133 @@
+package inventairePackage.bulkimport;
+
+import inventairePackage.Carte;
+import inventairePackage.Joueur;
+import inventairePackage.exceptions.InvalidParameterException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Import of the CSV files written by the export (RFC 4180): one line per card with the key and the name of its player,
+ * the columns cle, nomJoueur, titreCarte, nomEquipe and anneeSortie. A player without cards has empty card columns. A
+ * field between quotes can contain commas, doubled quotes and new lines, the importer then rejects the new lines so
+ * the record is read whole and reported once.
+ */
+public class CsvImportFormat implements ImportFormat
+{
+	public static final String EXTENSION = ".csv";
+
+	private static final String HEADER = "cle,nomJoueur,titreCarte,nomEquipe,anneeSortie";
+	private static final int COLUMNS = 5;
+
+	@Override
+	public String getExtension()
+	{
+		return EXTENSION;
+	}
+
+	@Override
+	public int readRecord(BufferedReader reader, StringBuilder record) throws IOException
+	{
+		record.setLength(0);
+		int lines = 0;
+		boolean quoted = false;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (lines > 0) {
+				// The new line was in a field between quotes
+				record.append('\n');
+			}
+			++lines;
+			record.append(line);
+			for (int i = 0; i < line.length(); ++i) {
+				if (line.charAt(i) == '"') {
+					quoted = !quoted;
+				}
+			}
+			if (!quoted) {
+				break;
+			}
+		}
+		return lines;
+	}
+
+	@Override
+	public boolean isHeader(String record)
+	{
+		return record.trim().equalsIgnoreCase(HEADER);
+	}
+
+	@Override
+	public Joueur parseRecord(String record) throws InvalidParameterException
+	{
+		List<String> fields = splitFields(record);
+		if (fields.size() != COLUMNS) {
+			throw new InvalidParameterException("record", String.format("%d columns instead of %d", fields.size(),
+					COLUMNS));
+		}
+		Joueur joueur = new Joueur(fields.get(0), fields.get(1));
+		if (fields.get(2).isEmpty() && fields.get(3).isEmpty() && fields.get(4).isEmpty()) {
+			return joueur;
+		}
+		int anneeSortie;
+		try {
+			anneeSortie = Integer.parseInt(fields.get(4).trim());
+		} catch (NumberFormatException e) {
+			throw new InvalidParameterException("anneeSortie", String.format("'%s' is not a year", fields.get(4)));
+		}
+		joueur.addCarte(new Carte(fields.get(2), fields.get(3), anneeSortie));
+		return joueur;
+	}
+
+	@Override
+	public boolean hasRecordPerCard()
+	{
+		return true;
+	}
+
+	/**
+	 * Cut a record in fields, removing the quotes.
+	 */
+	private static List<String> splitFields(String record) throws InvalidParameterException
+	{
+		List<String> fields = new ArrayList<String>(COLUMNS);
+		StringBuilder field = new StringBuilder();
+		int i = 0;
+		while (true) {
+			field.setLength(0);
+			if (i < record.length() && record.charAt(i) == '"') {
+				++i;
+				while (true) {
+					if (i == record.length()) {
+						throw new InvalidParameterException("record", "a quote is not closed");
+					}
+					char c = record.charAt(i++);
+					if (c == '"') {
+						if (i < record.length() && record.charAt(i) == '"') {
+							++i;
+						} else {
+							break;
+						}
+					}
+					field.append(c);
+				}
+				if (i < record.length() && record.charAt(i) != ',') {
+					throw new InvalidParameterException("record", "text after a closing quote");
+				}
+			} else {
+				while (i < record.length() && record.charAt(i) != ',') {
+					field.append(record.charAt(i++));
+				}
+			}
+			fields.add(field.toString());
+			if (i == record.length()) {
+				return fields;
+			}
+			// Skip the comma
+			++i;
+		}
+	}
+}
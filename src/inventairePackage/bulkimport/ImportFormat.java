@@ -0,0 +1,61 @@
+package inventairePackage.bulkimport;
+
+import inventairePackage.Joueur;
+import inventairePackage.exceptions.InvalidParameterException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Format of a file of players imported in bulk. The file is cut in records by one thread, then the records are parsed
+ * and validated in parallel, so parseRecord must not keep any state.
+ */
+public interface ImportFormat
+{
+	/**
+	 * Get the extension of the files in this format.
+	 *
+	 * @return String Extension with the dot (".csv").
+	 */
+	String getExtension();
+
+	/**
+	 * Read the text of the next record.
+	 *
+	 * @param reader
+	 *            The file.
+	 * @param record
+	 *            Receive the text of the record, it is emptied first.
+	 * @return int Number of lines read, 0 at the end of the file.
+	 * @throws IOException
+	 */
+	int readRecord(BufferedReader reader, StringBuilder record) throws IOException;
+
+	/**
+	 * Check if the first record of a file is a line of column names, not a player.
+	 *
+	 * @param record
+	 *            Text of the first record.
+	 * @return boolean true if the record is skipped.
+	 */
+	boolean isHeader(String record);
+
+	/**
+	 * Parse and validate a record.
+	 *
+	 * @param record
+	 *            Text of the record.
+	 * @return Joueur The player of the record, with his cards.
+	 * @throws InvalidParameterException
+	 *             The record is malformed or a value is invalid.
+	 */
+	Joueur parseRecord(String record) throws InvalidParameterException;
+
+	/**
+	 * Check if a player is spread on several records, one per card. The records of a file with the same key are then
+	 * joined into one player.
+	 *
+	 * @return boolean true if the records of a key must be joined.
+	 */
+	boolean hasRecordPerCard();
+}
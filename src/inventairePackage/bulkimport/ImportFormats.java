@@ -0,0 +1,30 @@
+package inventairePackage.bulkimport;
+
+import inventairePackage.export.ExportFormats;
+
+/**
+ * Find the format of a file to import.
+ */
+public class ImportFormats
+{
+	/**
+	 * Get the format matching the extension of a file name, before the ".gz" of a compressed file.
+	 *
+	 * @param fileName
+	 *            Name of the file.
+	 * @return ImportFormat The format or null if the extension is not known.
+	 */
+	public static ImportFormat fromFileName(String fileName)
+	{
+		String lowerCaseName = fileName.toLowerCase();
+		if (ExportFormats.isGzip(lowerCaseName)) {
+			lowerCaseName = lowerCaseName.substring(0, lowerCaseName.length() - ExportFormats.GZIP_EXTENSION.length());
+		}
+		if (lowerCaseName.endsWith(CsvImportFormat.EXTENSION)) {
+			return new CsvImportFormat();
+		} else if (lowerCaseName.endsWith(JsonLinesImportFormat.EXTENSION)) {
+			return new JsonLinesImportFormat();
+		}
+		return null;
+	}
+}
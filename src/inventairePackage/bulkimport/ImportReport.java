@@ -0,0 +1,141 @@
+package inventairePackage.bulkimport;
+
+import inventairePackage.MergeResult;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of a bulk import: the records read, the records rejected with their reason and what the merge did with the
+ * valid players.
+ */
+public class ImportReport
+{
+	/**
+	 * A record that was not imported.
+	 */
+	public static class Reject
+	{
+		private final String fileName;
+		private final int lineNumber;
+		private final String reason;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param fileName
+		 *            Name of the file of the record.
+		 * @param lineNumber
+		 *            Number of the first line of the record, from 1.
+		 * @param reason
+		 *            Why the record was rejected.
+		 */
+		public Reject(String fileName, int lineNumber, String reason)
+		{
+			this.fileName = fileName;
+			this.lineNumber = lineNumber;
+			this.reason = reason;
+		}
+
+		public String getFileName()
+		{
+			return fileName;
+		}
+
+		public int getLineNumber()
+		{
+			return lineNumber;
+		}
+
+		public String getReason()
+		{
+			return reason;
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format("%s:%d: %s", fileName, lineNumber, reason);
+		}
+	}
+
+	private long records = 0;
+	private final List<Reject> rejects = new ArrayList<Reject>();
+	private MergeResult mergeResult = new MergeResult();
+
+	/**
+	 * Get the number of records read, rejected or not.
+	 *
+	 * @return long Number of records.
+	 */
+	public long getRecords()
+	{
+		return records;
+	}
+
+	/**
+	 * Get the records rejected, in the order of the files.
+	 *
+	 * @return List<Reject> The rejects.
+	 */
+	public List<Reject> getRejects()
+	{
+		return Collections.unmodifiableList(rejects);
+	}
+
+	/**
+	 * Get what the merge did with the valid players.
+	 *
+	 * @return MergeResult Number of players added, replaced, merged, skipped and failed.
+	 */
+	public MergeResult getMergeResult()
+	{
+		return mergeResult;
+	}
+
+	/**
+	 * Write the rejects, one per line as "file:line: reason".
+	 *
+	 * @param file
+	 *            File to write, replaced if it exists.
+	 * @throws IOException
+	 */
+	public void writeRejects(File file) throws IOException
+	{
+		try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file.toPath()),
+				StandardCharsets.UTF_8))) {
+			for (Reject reject : rejects) {
+				writer.write(reject.toString());
+				writer.newLine();
+			}
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("%d records read, %d rejected, %s", records, rejects.size(), mergeResult);
+	}
+
+	void countRecords(int count)
+	{
+		records += count;
+	}
+
+	void reject(String fileName, int lineNumber, String reason)
+	{
+		rejects.add(new Reject(fileName, lineNumber, reason));
+	}
+
+	void setMergeResult(MergeResult mergeResult)
+	{
+		this.mergeResult = mergeResult;
+	}
+}
@@ -0,0 +1,299 @@
+package inventairePackage.bulkimport;
+
+import inventairePackage.Carte;
+import inventairePackage.Joueur;
+import inventairePackage.exceptions.InvalidParameterException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Import of the JSON Lines files written by the export: one JSON object per line and per player, with his cards in an
+ * array. The fields that are not known are skipped, a missing field is invalid.
+ *
+ * <pre>
+ * {"cle":"...","nomJoueur":"...","cartes":[{"titreCarte":"...","nomEquipe":"...","anneeSortie":1994}]}
+ * </pre>
+ */
+public class JsonLinesImportFormat implements ImportFormat
+{
+	public static final String EXTENSION = ".jsonl";
+
+	@Override
+	public String getExtension()
+	{
+		return EXTENSION;
+	}
+
+	@Override
+	public int readRecord(BufferedReader reader, StringBuilder record) throws IOException
+	{
+		record.setLength(0);
+		int lines = 0;
+		String line;
+		// Blank lines are skipped but counted
+		while ((line = reader.readLine()) != null) {
+			++lines;
+			if (!line.trim().isEmpty()) {
+				record.append(line);
+				return lines;
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public boolean isHeader(String record)
+	{
+		return false;
+	}
+
+	@Override
+	public Joueur parseRecord(String record) throws InvalidParameterException
+	{
+		return new Parser(record).readPlayer();
+	}
+
+	@Override
+	public boolean hasRecordPerCard()
+	{
+		return false;
+	}
+
+	/**
+	 * Read a player from a JSON object, with only the parts of JSON the export writes plus the values to skip.
+	 */
+	private static class Parser
+	{
+		private final String text;
+		private int position = 0;
+
+		private Parser(String text)
+		{
+			this.text = text;
+		}
+
+		private Joueur readPlayer() throws InvalidParameterException
+		{
+			String cle = null;
+			String nomJoueur = null;
+			Joueur joueur = null;
+			expect('{');
+			if (!consume('}')) {
+				do {
+					String field = readString();
+					expect(':');
+					if (field.equals("cle")) {
+						cle = readString();
+					} else if (field.equals("nomJoueur")) {
+						nomJoueur = readString();
+					} else if (field.equals("cartes")) {
+						if (cle == null || nomJoueur == null) {
+							throw error("\"cartes\" must follow \"cle\" and \"nomJoueur\"");
+						}
+						joueur = new Joueur(cle, nomJoueur);
+						readCards(joueur);
+					} else {
+						skipValue();
+					}
+				} while (consume(','));
+				expect('}');
+			}
+			skipSpaces();
+			if (position < text.length()) {
+				throw error("text after the object");
+			}
+			if (joueur == null) {
+				// A player without the array has no cards
+				joueur = new Joueur(required(cle, "cle"), required(nomJoueur, "nomJoueur"));
+			} else if (!cle.equals(joueur.getCle()) || !nomJoueur.equals(joueur.getNomJoueur())) {
+				throw error("\"cle\" or \"nomJoueur\" given twice");
+			}
+			return joueur;
+		}
+
+		private void readCards(Joueur joueur) throws InvalidParameterException
+		{
+			expect('[');
+			if (consume(']')) {
+				return;
+			}
+			do {
+				String titreCarte = null;
+				String nomEquipe = null;
+				Integer anneeSortie = null;
+				expect('{');
+				if (!consume('}')) {
+					do {
+						String field = readString();
+						expect(':');
+						if (field.equals("titreCarte")) {
+							titreCarte = readString();
+						} else if (field.equals("nomEquipe")) {
+							nomEquipe = readString();
+						} else if (field.equals("anneeSortie")) {
+							anneeSortie = readInt();
+						} else {
+							skipValue();
+						}
+					} while (consume(','));
+					expect('}');
+				}
+				joueur.addCarte(new Carte(required(titreCarte, "titreCarte"), required(nomEquipe, "nomEquipe"),
+						required(anneeSortie, "anneeSortie")));
+			} while (consume(','));
+			expect(']');
+		}
+
+		private <T> T required(T value, String field) throws InvalidParameterException
+		{
+			if (value == null) {
+				throw new InvalidParameterException(field, "the field is missing");
+			}
+			return value;
+		}
+
+		private String readString() throws InvalidParameterException
+		{
+			expect('"');
+			StringBuilder value = new StringBuilder();
+			while (true) {
+				if (position == text.length()) {
+					throw error("a string is not closed");
+				}
+				char c = text.charAt(position++);
+				if (c == '"') {
+					return value.toString();
+				} else if (c != '\\') {
+					value.append(c);
+					continue;
+				}
+				if (position == text.length()) {
+					throw error("a string is not closed");
+				}
+				c = text.charAt(position++);
+				switch (c) {
+					case 'b':
+						value.append('\b');
+						break;
+					case 'f':
+						value.append('\f');
+						break;
+					case 'n':
+						value.append('\n');
+						break;
+					case 'r':
+						value.append('\r');
+						break;
+					case 't':
+						value.append('\t');
+						break;
+					case 'u':
+						if (position + 4 > text.length()) {
+							throw error("a \\u escape is cut");
+						}
+						try {
+							value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+						} catch (NumberFormatException e) {
+							throw error("a \\u escape is not hexadecimal");
+						}
+						position += 4;
+						break;
+					case '"':
+					case '\\':
+					case '/':
+						value.append(c);
+						break;
+					default:
+						throw error(String.format("unknown escape '\\%c'", c));
+				}
+			}
+		}
+
+		private int readInt() throws InvalidParameterException
+		{
+			skipSpaces();
+			int start = position;
+			if (position < text.length() && text.charAt(position) == '-') {
+				++position;
+			}
+			while (position < text.length() && Character.isDigit(text.charAt(position))) {
+				++position;
+			}
+			try {
+				return Integer.parseInt(text.substring(start, position));
+			} catch (NumberFormatException e) {
+				throw new InvalidParameterException("anneeSortie", String.format("not a year at column %d",
+						start + 1));
+			}
+		}
+
+		/**
+		 * Skip a value of a field that is not known.
+		 */
+		private void skipValue() throws InvalidParameterException
+		{
+			skipSpaces();
+			if (position == text.length()) {
+				throw error("a value is missing");
+			}
+			char c = text.charAt(position);
+			if (c == '"') {
+				readString();
+			} else if (c == '{' || c == '[') {
+				char close = c == '{' ? '}' : ']';
+				++position;
+				if (consume(close)) {
+					return;
+				}
+				do {
+					if (c == '{') {
+						readString();
+						expect(':');
+					}
+					skipValue();
+				} while (consume(','));
+				expect(close);
+			} else {
+				// Number, true, false or null
+				int start = position;
+				while (position < text.length() && ",}] \t".indexOf(text.charAt(position)) < 0) {
+					++position;
+				}
+				if (position == start) {
+					throw error(String.format("unexpected '%c'", c));
+				}
+			}
+		}
+
+		private void expect(char c) throws InvalidParameterException
+		{
+			if (!consume(c)) {
+				throw error(position < text.length() ? String.format("'%c' expected instead of '%c'", c, text
+						.charAt(position)) : String.format("'%c' expected at the end of the line", c));
+			}
+		}
+
+		private boolean consume(char c)
+		{
+			skipSpaces();
+			if (position < text.length() && text.charAt(position) == c) {
+				++position;
+				return true;
+			}
+			return false;
+		}
+
+		private void skipSpaces()
+		{
+			while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+				++position;
+			}
+		}
+
+		private InvalidParameterException error(String message)
+		{
+			return new InvalidParameterException("record", String.format("%s at column %d", message, position + 1));
+		}
+	}
+}
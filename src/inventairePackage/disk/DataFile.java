@@ -0,0 +1,409 @@
+package inventairePackage.disk;
+
+import inventairePackage.Joueur;
+import inventairePackage.exceptions.InvalidParameterException;
+import inventairePackage.exceptions.MalformedStorageException;
+import inventairePackage.storage.SnapshotWriter;
+import inventairePackage.storage.StorageReader;
+import inventairePackage.storage.StorageTokenizer;
+import inventairePackage.utils.QuotedFields;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * File of the records of the players of a disk inventory, one record by line in the storage text format. The records
+ * are only appended: a new version of a player is written at the end of the file and the index points to it. A deleted
+ * player gets a record with only his key, without the ';' that follows every field of a player, so the index can be
+ * built again from the file, the last record of a key winning. The old records stay until the file is compacted.
+ *
+ * The records appended are kept in a buffer and written by large blocks. The records read are taken from a read-ahead
+ * buffer, so reading the players in the order of the file reads it by large blocks too. The file is not thread-safe.
+ */
+public class DataFile implements Closeable
+{
+	public static final String EXTENSION = ".dat";
+
+	private static final int BUFFER_SIZE = 256 * 1024;
+
+	private final File file;
+	private FileChannel channel;
+	// Size of the file with the records still in the write buffer
+	private long size;
+	private final ByteBuffer writeBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+	// Position in the file of the first byte of the read buffer, -1 when it is empty
+	private long readBufferStart = -1;
+	private final StringBuilder record = new StringBuilder(256);
+	private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+	private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	/**
+	 * Constructor, opens the file or creates it.
+	 *
+	 * @param file
+	 *            The data file.
+	 * @throws IOException
+	 */
+	public DataFile(File file) throws IOException
+	{
+		this.file = file;
+		open();
+	}
+
+	/**
+	 * Get the file.
+	 *
+	 * @return File The data file.
+	 */
+	public File getFile()
+	{
+		return file;
+	}
+
+	/**
+	 * Get the size of the file, with the records not written yet.
+	 *
+	 * @return long Number of bytes.
+	 */
+	public long size()
+	{
+		return size;
+	}
+
+	/**
+	 * Append the record of a player. Its length is the size of the file after the call minus its position.
+	 *
+	 * @param player
+	 *            The player.
+	 * @return long Position of the record in the file.
+	 * @throws IOException
+	 */
+	public long append(Joueur player) throws IOException
+	{
+		record.setLength(0);
+		player.appendCSVEntry(record);
+		return appendRecord();
+	}
+
+	/**
+	 * Append the record of a deleted player, with only his key and no ';' after it.
+	 *
+	 * @param cle
+	 *            Key of the player.
+	 * @return long Position of the record in the file.
+	 * @throws IOException
+	 */
+	public long appendDeleted(String cle) throws IOException
+	{
+		record.setLength(0);
+		QuotedFields.appendQuoted(record, cle);
+		// A player always has fields after his key, a key alone ends the record
+		record.setLength(record.length() - 1);
+		return appendRecord();
+	}
+
+	/**
+	 * Read the record of a player.
+	 *
+	 * @param offset
+	 *            Position of the record.
+	 * @param length
+	 *            Number of bytes of the record.
+	 * @return Joueur The player.
+	 * @throws IOException
+	 *             The record couldn't be read or is malformed.
+	 */
+	public Joueur read(long offset, int length) throws IOException
+	{
+		StorageTokenizer tokenizer = tokenize(offset, length);
+		try {
+			Joueur player = new StorageReader(tokenizer, null).readPlayer();
+			if (player == null) {
+				throw new IOException(String.format("No record at position %d of '%s'.", offset, file.getName()));
+			}
+			return player;
+		} catch (MalformedStorageException e) {
+			throw new IOException(String.format("Malformed record at position %d of '%s'. %s", offset,
+					file.getName(), e.getReason()), e);
+		}
+	}
+
+	/**
+	 * Read only the key and the name of a player, his cards are not decoded.
+	 *
+	 * @param offset
+	 *            Position of the record.
+	 * @param length
+	 *            Number of bytes of the record.
+	 * @return Joueur The player without his cards.
+	 * @throws IOException
+	 *             The record couldn't be read or is malformed.
+	 */
+	public Joueur readWithoutCartes(long offset, int length) throws IOException
+	{
+		StorageTokenizer tokenizer = tokenize(offset, length);
+		try {
+			if (!tokenizer.nextRecord()) {
+				throw new IOException(String.format("No record at position %d of '%s'.", offset, file.getName()));
+			}
+			return new Joueur(tokenizer.nextString(), tokenizer.nextString());
+		} catch (MalformedStorageException e) {
+			throw new IOException(String.format("Malformed record at position %d of '%s'. %s", offset,
+					file.getName(), e.getReason()), e);
+		} catch (InvalidParameterException e) {
+			throw new IOException(String.format("Malformed record at position %d of '%s'. %s", offset,
+					file.getName(), e.getMessage()), e);
+		}
+	}
+
+	/**
+	 * Decode the bytes of a record, through the read buffer.
+	 */
+	private StorageTokenizer tokenize(long offset, int length) throws IOException
+	{
+		if (offset + length > size - writeBuffer.position()) {
+			flush();
+		}
+		if (readBufferStart < 0 || offset < readBufferStart || offset + length > readBufferStart + readBuffer.limit()) {
+			fill(offset, length);
+		}
+
+		ByteBuffer bytes = readBuffer.duplicate();
+		bytes.position((int) (offset - readBufferStart));
+		bytes.limit(bytes.position() + length);
+		return new StorageTokenizer(decoder.decode(bytes));
+	}
+
+	/**
+	 * Read all the records in the order of the file, to build the index again.
+	 *
+	 * @param visitor
+	 *            Receive the key, the position and the length of every record. The length of the record of a deleted
+	 *            player is 0.
+	 * @throws IOException
+	 */
+	public void scan(KeyIndex.Visitor visitor) throws IOException
+	{
+		flush();
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		// Position in the file of the first byte of the buffer
+		long bufferStart = 0;
+		int scanned = 0;
+		// A new line between quotes is part of a field, not the end of the record
+		boolean quoted = false;
+		while (true) {
+			boolean endOfFile = channel.read(buffer, bufferStart + buffer.position()) < 0;
+			byte[] bytes = buffer.array();
+			int limit = buffer.position();
+			int lineStart = 0;
+			for (int i = scanned; i < limit; ++i) {
+				if (bytes[i] == '"') {
+					quoted = !quoted;
+				} else if (bytes[i] == '\n' && !quoted) {
+					scanRecord(bytes, lineStart, i + 1, bufferStart, visitor);
+					lineStart = i + 1;
+				}
+			}
+			if (endOfFile) {
+				if (lineStart < limit) {
+					scanRecord(bytes, lineStart, limit, bufferStart, visitor);
+				}
+				return;
+			}
+
+			// Keep the incomplete record at the beginning of the buffer, in a bigger buffer if it fills it
+			int remaining = limit - lineStart;
+			if (remaining == buffer.capacity()) {
+				ByteBuffer bigger = ByteBuffer.allocate(buffer.capacity() * 2);
+				bigger.put(bytes, 0, remaining);
+				buffer = bigger;
+			} else {
+				System.arraycopy(bytes, lineStart, bytes, 0, remaining);
+				buffer.clear();
+				buffer.position(remaining);
+			}
+			bufferStart += lineStart;
+			scanned = remaining;
+		}
+	}
+
+	/**
+	 * Write the records to the disk.
+	 *
+	 * @throws IOException
+	 */
+	public void force() throws IOException
+	{
+		flush();
+		channel.force(false);
+	}
+
+	/**
+	 * Rewrite the file with only the records of the index, in the order of the keys, and move the records of the index.
+	 * The file is replaced atomically, if anything fails the file and the index are left as they were.
+	 *
+	 * @param index
+	 *            The index, its changes must be merged.
+	 * @throws IOException
+	 */
+	public void compact(final KeyIndex index) throws IOException
+	{
+		flush();
+		final long[] newOffsets = new long[index.size()];
+		SnapshotWriter.write(file, new SnapshotWriter.Content() {
+			@Override
+			public void writeTo(FileChannel target) throws IOException
+			{
+				long position = 0;
+				int i = 0;
+				while (i < newOffsets.length) {
+					// The records that follow each other in the file are copied together
+					long start = index.offsetAt(i);
+					long end = start;
+					while (i < newOffsets.length && index.offsetAt(i) == end) {
+						newOffsets[i] = position + end - start;
+						end += index.lengthAt(i);
+						++i;
+					}
+					long copied = 0;
+					while (copied < end - start) {
+						copied += channel.transferTo(start + copied, end - start - copied, target);
+					}
+					position += end - start;
+				}
+			}
+		});
+		channel.close();
+		open();
+		index.moveRecords(newOffsets);
+	}
+
+	/**
+	 * Write the records appended and close the file.
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+
+	private void open() throws IOException
+	{
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		size = channel.size();
+		readBufferStart = -1;
+	}
+
+	/**
+	 * Encode the record built and add it to the write buffer.
+	 */
+	private long appendRecord() throws IOException
+	{
+		record.append('\n');
+		long offset = size;
+		CharBuffer chars = CharBuffer.wrap(record);
+		encoder.reset();
+		while (true) {
+			int before = writeBuffer.position();
+			CoderResult result = encoder.encode(chars, writeBuffer, true);
+			size += writeBuffer.position() - before;
+			if (result.isOverflow()) {
+				flush();
+			} else if (result.isError()) {
+				result.throwException();
+			} else {
+				break;
+			}
+		}
+		return offset;
+	}
+
+	/**
+	 * Write the buffer of the records appended at the end of the file.
+	 */
+	private void flush() throws IOException
+	{
+		writeBuffer.flip();
+		long position = size - writeBuffer.remaining();
+		while (writeBuffer.hasRemaining()) {
+			position += channel.write(writeBuffer, position);
+		}
+		writeBuffer.clear();
+	}
+
+	/**
+	 * Fill the read buffer from the beginning of a record.
+	 */
+	private void fill(long offset, int length) throws IOException
+	{
+		if (length > readBuffer.capacity()) {
+			readBuffer = ByteBuffer.allocate(length);
+		}
+		readBuffer.clear();
+		readBufferStart = -1;
+		while (readBuffer.position() < length) {
+			if (channel.read(readBuffer, offset + readBuffer.position()) < 0) {
+				throw new IOException(String.format("The record at position %d of '%s' is past the end of the file.",
+						offset, file.getName()));
+			}
+		}
+		readBuffer.flip();
+		readBufferStart = offset;
+	}
+
+	/**
+	 * Give the key of a record, the bytes from start to end (excluded) of the buffer.
+	 */
+	private void scanRecord(byte[] bytes, int start, int end, long bufferStart, KeyIndex.Visitor visitor)
+			throws IOException
+	{
+		// The key ends at the first ';' outside of the quotes, a record with only the key is a deleted player
+		int keyEnd = start;
+		boolean quoted = false;
+		while (keyEnd < end && (quoted || bytes[keyEnd] != ';')) {
+			if (bytes[keyEnd] == '"') {
+				quoted = !quoted;
+			}
+			++keyEnd;
+		}
+		// The files written before the deletions lost their ';' have nothing but the end of the line after it
+		int fieldsStart = keyEnd + 1;
+		while (fieldsStart < end && (bytes[fieldsStart] == '\r' || bytes[fieldsStart] == '\n')) {
+			++fieldsStart;
+		}
+		boolean deleted = keyEnd == end || fieldsStart >= end;
+
+		StorageTokenizer tokenizer = new StorageTokenizer(decoder.decode(ByteBuffer.wrap(bytes, start, keyEnd
+				- start)));
+		try {
+			if (!tokenizer.nextRecord()) {
+				// Empty line
+				return;
+			}
+			visitor.visit(tokenizer.nextString(), bufferStart + start, deleted ? 0 : end - start);
+		} catch (MalformedStorageException e) {
+			throw new IOException(String.format("Malformed record at position %d of '%s'. %s", bufferStart + start,
+					file.getName(), e.getReason()), e);
+		}
+	}
+}
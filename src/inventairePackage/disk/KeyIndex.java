@@ -0,0 +1,446 @@
+package inventairePackage.disk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Position of the record of every player in the data file, sorted by key. The positions are kept in arrays, without
+ * an object per player, so the index of millions of players stays small. The changes since the last merge are kept
+ * aside in a sorted map and merged into the arrays when the inventory is saved.
+ *
+ * A player whose record is not written yet has the position NOT_WRITTEN, he is only in the cache.
+ */
+public class KeyIndex
+{
+	public static final long NOT_WRITTEN = -1;
+
+	private static final int MAGIC = 0x49445849; // "IDXI"
+	private static final byte VERSION = 1;
+
+	private String[] keys = new String[0];
+	private long[] offsets = new long[0];
+	private int[] lengths = new int[0];
+	// Number of entries used in the arrays, they can be bigger while they are filled
+	private int count = 0;
+	// Changes not merged yet, a null value is a deleted player
+	private final TreeMap<String, long[]> changes = new TreeMap<String, long[]>();
+	private int size = 0;
+	private long liveBytes = 0;
+
+	/**
+	 * Receive the entries of the index in the order of the keys.
+	 */
+	public interface Visitor
+	{
+		/**
+		 * Receive an entry.
+		 *
+		 * @param cle
+		 *            Key of the player.
+		 * @param offset
+		 *            Position of his record or NOT_WRITTEN.
+		 * @param length
+		 *            Number of bytes of his record.
+		 * @throws IOException
+		 */
+		void visit(String cle, long offset, int length) throws IOException;
+	}
+
+	/**
+	 * Get the number of players.
+	 *
+	 * @return int Number of players.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Get the number of bytes of the records still used in the data file.
+	 *
+	 * @return long Number of bytes.
+	 */
+	public long getLiveBytes()
+	{
+		return liveBytes;
+	}
+
+	/**
+	 * Check if the index was changed since the last merge.
+	 *
+	 * @return boolean true if some changes are not merged.
+	 */
+	public boolean hasChanges()
+	{
+		return !changes.isEmpty();
+	}
+
+	/**
+	 * Check if a player is in the index.
+	 *
+	 * @param cle
+	 *            Key of the player.
+	 * @return boolean true if the player exists.
+	 */
+	public boolean contains(String cle)
+	{
+		if (changes.containsKey(cle)) {
+			return changes.get(cle) != null;
+		}
+		return Arrays.binarySearch(keys, 0, count, cle) >= 0;
+	}
+
+	/**
+	 * Get the position of the record of a player.
+	 *
+	 * @param cle
+	 *            Key of the player.
+	 * @return long[] Position and length of the record, or null if the player doesn't exist.
+	 */
+	public long[] get(String cle)
+	{
+		if (changes.containsKey(cle)) {
+			return changes.get(cle);
+		}
+		int i = Arrays.binarySearch(keys, 0, count, cle);
+		return i < 0 ? null : new long[] { offsets[i], lengths[i] };
+	}
+
+	/**
+	 * Add a player or change the position of his record.
+	 *
+	 * @param cle
+	 *            Key of the player.
+	 * @param offset
+	 *            Position of the record or NOT_WRITTEN.
+	 * @param length
+	 *            Number of bytes of the record.
+	 */
+	public void put(String cle, long offset, int length)
+	{
+		long[] previous = get(cle);
+		if (previous == null) {
+			++size;
+		} else if (previous[0] != NOT_WRITTEN) {
+			liveBytes -= previous[1];
+		}
+		if (offset != NOT_WRITTEN) {
+			liveBytes += length;
+		}
+		changes.put(cle, new long[] { offset, length });
+	}
+
+	/**
+	 * Remove a player.
+	 *
+	 * @param cle
+	 *            Key of the player.
+	 */
+	public void remove(String cle)
+	{
+		long[] previous = get(cle);
+		if (previous == null) {
+			return;
+		}
+		--size;
+		if (previous[0] != NOT_WRITTEN) {
+			liveBytes -= previous[1];
+		}
+		changes.put(cle, null);
+	}
+
+	/**
+	 * Give all the entries in the order of the keys.
+	 *
+	 * @param visitor
+	 *            Receive the entries.
+	 * @throws IOException
+	 *             Thrown by the visitor.
+	 */
+	public void forEach(Visitor visitor) throws IOException
+	{
+		Iterator<Map.Entry<String, long[]>> changed = changes.entrySet().iterator();
+		Map.Entry<String, long[]> change = changed.hasNext() ? changed.next() : null;
+		int i = 0;
+		while (i < count || change != null) {
+			int order = change == null ? -1 : i == count ? 1 : keys[i].compareTo(change.getKey());
+			if (order < 0) {
+				visitor.visit(keys[i], offsets[i], lengths[i]);
+				++i;
+			} else {
+				if (change.getValue() != null) {
+					visitor.visit(change.getKey(), change.getValue()[0], (int) change.getValue()[1]);
+				}
+				if (order == 0) {
+					++i;
+				}
+				change = changed.hasNext() ? changed.next() : null;
+			}
+		}
+	}
+
+	/**
+	 * Merge the changes into the arrays. Every player must have his record written.
+	 *
+	 * @throws IOException
+	 */
+	public void merge() throws IOException
+	{
+		if (changes.isEmpty()) {
+			return;
+		}
+		final String[] mergedKeys = new String[size];
+		final long[] mergedOffsets = new long[size];
+		final int[] mergedLengths = new int[size];
+		final int[] position = { 0 };
+		forEach(new Visitor() {
+			@Override
+			public void visit(String cle, long offset, int length) throws IOException
+			{
+				if (offset == NOT_WRITTEN) {
+					throw new IOException(String.format("The record of player '%s' was not written.", cle));
+				}
+				mergedKeys[position[0]] = cle;
+				mergedOffsets[position[0]] = offset;
+				mergedLengths[position[0]] = length;
+				++position[0];
+			}
+		});
+		keys = mergedKeys;
+		offsets = mergedOffsets;
+		lengths = mergedLengths;
+		count = size;
+		changes.clear();
+	}
+
+	/**
+	 * Get the key of an entry of the arrays, the changes must be merged.
+	 *
+	 * @param i
+	 *            Position in the order of the keys.
+	 * @return String The key.
+	 */
+	public String keyAt(int i)
+	{
+		return keys[i];
+	}
+
+	/**
+	 * Get the position of the record of an entry of the arrays, the changes must be merged.
+	 *
+	 * @param i
+	 *            Position in the order of the keys.
+	 * @return long Position of the record.
+	 */
+	public long offsetAt(int i)
+	{
+		return offsets[i];
+	}
+
+	/**
+	 * Get the length of the record of an entry of the arrays, the changes must be merged.
+	 *
+	 * @param i
+	 *            Position in the order of the keys.
+	 * @return int Number of bytes of the record.
+	 */
+	public int lengthAt(int i)
+	{
+		return lengths[i];
+	}
+
+	/**
+	 * Move all the records, after the data file was rewritten. The changes must be merged.
+	 *
+	 * @param newOffsets
+	 *            New position of every record, in the order of the keys.
+	 */
+	public void moveRecords(long[] newOffsets)
+	{
+		offsets = newOffsets;
+	}
+
+	/**
+	 * Add an entry at the end of the arrays, without checking the order. Used to build the index before sortByKey.
+	 *
+	 * @param cle
+	 *            Key of the player.
+	 * @param offset
+	 *            Position of his record.
+	 * @param length
+	 *            Number of bytes of his record.
+	 */
+	public void append(String cle, long offset, int length)
+	{
+		if (count == keys.length) {
+			int capacity = Math.max(16, count * 2);
+			keys = Arrays.copyOf(keys, capacity);
+			offsets = Arrays.copyOf(offsets, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+		}
+		keys[count] = cle;
+		offsets[count] = offset;
+		lengths[count] = length;
+		++count;
+	}
+
+	/**
+	 * Sort the entries added by append. When a key was added several times, only its last record is kept (the one at
+	 * the end of the data file), or the key is returned if duplicates are refused. An entry with a length of 0 is a
+	 * deleted player: when it is the last record of its key, the key is removed.
+	 *
+	 * @param keepLast
+	 *            true to keep the last record of a key, false to refuse duplicates.
+	 * @return String The first duplicate key when they are refused, null otherwise.
+	 */
+	public String sortByKey(boolean keepLast)
+	{
+		heapSort();
+		int kept = 0;
+		for (int i = 0; i < count; ++i) {
+			if (kept > 0 && keys[kept - 1].equals(keys[i])) {
+				if (!keepLast) {
+					return keys[i];
+				}
+				if (offsets[i] < offsets[kept - 1]) {
+					continue;
+				}
+				--kept;
+			}
+			keys[kept] = keys[i];
+			offsets[kept] = offsets[i];
+			lengths[kept] = lengths[i];
+			++kept;
+		}
+		int live = 0;
+		for (int i = 0; i < kept; ++i) {
+			if (lengths[i] > 0) {
+				keys[live] = keys[i];
+				offsets[live] = offsets[i];
+				lengths[live] = lengths[i];
+				++live;
+			}
+		}
+		Arrays.fill(keys, live, count, null);
+		kept = live;
+		count = kept;
+		size = kept;
+		liveBytes = 0;
+		for (int i = 0; i < count; ++i) {
+			liveBytes += lengths[i];
+		}
+		return null;
+	}
+
+	/**
+	 * Sort the three arrays together by key, in place.
+	 */
+	private void heapSort()
+	{
+		for (int i = count / 2 - 1; i >= 0; --i) {
+			siftDown(i, count);
+		}
+		for (int end = count - 1; end > 0; --end) {
+			swap(0, end);
+			siftDown(0, end);
+		}
+	}
+
+	private void siftDown(int root, int end)
+	{
+		while (2 * root + 1 < end) {
+			int child = 2 * root + 1;
+			if (child + 1 < end && keys[child].compareTo(keys[child + 1]) < 0) {
+				++child;
+			}
+			if (keys[root].compareTo(keys[child]) >= 0) {
+				return;
+			}
+			swap(root, child);
+			root = child;
+		}
+	}
+
+	private void swap(int i, int j)
+	{
+		String key = keys[i];
+		keys[i] = keys[j];
+		keys[j] = key;
+		long offset = offsets[i];
+		offsets[i] = offsets[j];
+		offsets[j] = offset;
+		int length = lengths[i];
+		lengths[i] = lengths[j];
+		lengths[j] = length;
+	}
+
+	/**
+	 * Write the index, the changes must be merged. The size of the data file is written with it, so an index that
+	 * doesn't match the data file is not used.
+	 *
+	 * @param output
+	 *            Where the index is written, it is flushed but not closed.
+	 * @param dataSize
+	 *            Size of the data file.
+	 * @throws IOException
+	 */
+	public void write(OutputStream output, long dataSize) throws IOException
+	{
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(output, 64 * 1024));
+		data.writeInt(MAGIC);
+		data.writeByte(VERSION);
+		data.writeLong(dataSize);
+		data.writeInt(count);
+		for (int i = 0; i < count; ++i) {
+			data.writeUTF(keys[i]);
+			data.writeLong(offsets[i]);
+			data.writeInt(lengths[i]);
+		}
+		data.flush();
+	}
+
+	/**
+	 * Read an index written by write.
+	 *
+	 * @param file
+	 *            The index file.
+	 * @param dataSize
+	 *            Size of the data file.
+	 * @return KeyIndex The index, or null if the file doesn't exist, is damaged or doesn't match the data file.
+	 */
+	public static KeyIndex read(File file, long dataSize)
+	{
+		if (!file.exists()) {
+			return null;
+		}
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+			if (input.readInt() != MAGIC || input.readByte() != VERSION || input.readLong() != dataSize) {
+				return null;
+			}
+			KeyIndex index = new KeyIndex();
+			int entries = input.readInt();
+			for (int i = 0; i < entries; ++i) {
+				index.append(input.readUTF(), input.readLong(), input.readInt());
+			}
+			index.size = index.count;
+			for (int i = 0; i < index.count; ++i) {
+				index.liveBytes += index.lengths[i];
+			}
+			return index;
+		} catch (IOException e) {
+			// Damaged or incomplete, it is built again from the data file
+			return null;
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package inventairePackage.disk;
+
+import inventairePackage.Joueur;
+import inventairePackage.metrics.CacheMetrics;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Players recently used, by key, up to a number of players. When the cache is full, the player used the longest time
+ * ago is dropped; if he was changed since he was read (dirty), he is first written back.
+ *
+ * The cache counts its hits, misses, evictions and write-backs in CacheMetrics. It is not thread-safe, its owner locks
+ * it.
+ */
+public class PlayerCache
+{
+	/**
+	 * Write a changed player to the disk.
+	 */
+	public interface WriteBack
+	{
+		/**
+		 * Write a player.
+		 *
+		 * @param player
+		 *            The player.
+		 * @throws IOException
+		 */
+		void write(Joueur player) throws IOException;
+	}
+
+	private final int capacity;
+	private final WriteBack writeBack;
+	// In the order of the last use, the oldest first
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	private final CacheMetrics metrics;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity
+	 *            Number of players kept.
+	 * @param writeBack
+	 *            Write the dirty players that are dropped or flushed.
+	 * @param metrics
+	 *            Where the hits, misses, evictions and write-backs are counted.
+	 */
+	public PlayerCache(int capacity, WriteBack writeBack, CacheMetrics metrics)
+	{
+		this.capacity = Math.max(1, capacity);
+		this.writeBack = writeBack;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Get a player, counted as a hit or a miss.
+	 *
+	 * @param cle
+	 *            Key of the player.
+	 * @return Joueur The player or null if he is not in the cache.
+	 */
+	public Joueur get(String cle)
+	{
+		Entry entry = entries.get(cle);
+		if (entry == null) {
+			metrics.recordMiss();
+			return null;
+		}
+		metrics.recordHit();
+		return entry.player;
+	}
+
+	/**
+	 * Get a player without counting it, for the searches that go through all the players.
+	 *
+	 * @param cle
+	 *            Key of the player.
+	 * @return Joueur The player or null if he is not in the cache.
+	 */
+	public Joueur peek(String cle)
+	{
+		Entry entry = entries.get(cle);
+		return entry == null ? null : entry.player;
+	}
+
+	/**
+	 * Put a player in the cache, after dropping the oldest players to make room for him. The cache never holds more
+	 * players than its capacity.
+	 *
+	 * @param cle
+	 *            Key of the player.
+	 * @param player
+	 *            The player.
+	 * @param dirty
+	 *            true if the player must be written before he is dropped.
+	 * @throws IOException
+	 *             A dirty player couldn't be written back, he stays in the cache and the new player is not put in it.
+	 */
+	public void put(String cle, Joueur player, boolean dirty) throws IOException
+	{
+		Entry previous = entries.get(cle);
+		if (previous == null) {
+			Iterator<Map.Entry<String, Entry>> oldest = entries.entrySet().iterator();
+			while (entries.size() >= capacity) {
+				Entry entry = oldest.next().getValue();
+				if (entry.dirty) {
+					writeBack.write(entry.player);
+					metrics.recordWriteBack();
+				}
+				oldest.remove();
+				metrics.recordEviction();
+			}
+		}
+		entries.put(cle, new Entry(player, dirty || previous != null && previous.dirty));
+	}
+
+	/**
+	 * Remove a player without writing him.
+	 *
+	 * @param cle
+	 *            Key of the player.
+	 */
+	public void remove(String cle)
+	{
+		entries.remove(cle);
+	}
+
+	/**
+	 * Write back all the dirty players, they stay in the cache.
+	 *
+	 * @return int Number of players written.
+	 * @throws IOException
+	 */
+	public int flush() throws IOException
+	{
+		int written = 0;
+		for (Entry entry : entries.values()) {
+			if (entry.dirty) {
+				writeBack.write(entry.player);
+				metrics.recordWriteBack();
+				entry.dirty = false;
+				++written;
+			}
+		}
+		return written;
+	}
+
+	/**
+	 * Get the number of players in the cache.
+	 *
+	 * @return int Number of players.
+	 */
+	public int size()
+	{
+		return entries.size();
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("%d players, %s", entries.size(), metrics);
+	}
+
+	private static class Entry
+	{
+		private final Joueur player;
+		private boolean dirty;
+
+		private Entry(Joueur player, boolean dirty)
+		{
+			this.player = player;
+			this.dirty = dirty;
+		}
+	}
+}
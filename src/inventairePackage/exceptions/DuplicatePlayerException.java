@@ -0,0 +1,11 @@
+package inventairePackage.exceptions;
+
+public class DuplicatePlayerException extends Exception
+{
+	private static final long serialVersionUID = 3127448815640829163L;
+
+	public DuplicatePlayerException(String cle)
+	{
+		super(String.format("A player with key '%s' already exists.", cle));
+	}
+}
@@ -6,6 +6,6 @@ public class FailedToReadStorageException extends Exception
 
 	public FailedToReadStorageException(String filename, Throwable cause)
 	{
-		super("File '%s' couldn't be readed.", cause);
+		super(String.format("File '%s' couldn't be readed. %s", filename, cause.getMessage()), cause);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,46 @@
+package inventairePackage.exceptions;
+
+public class MalformedStorageException extends Exception
+{
+	private static final long serialVersionUID = -2283164072529402115L;
+
+	private final int lineNumber;
+	private final String reason;
+
+	public MalformedStorageException(int lineNumber, String reason)
+	{
+		this(lineNumber, reason, null);
+	}
+
+	public MalformedStorageException(int lineNumber, Throwable cause)
+	{
+		this(lineNumber, cause.getMessage(), cause);
+	}
+
+	public MalformedStorageException(int lineNumber, String reason, Throwable cause)
+	{
+		super(String.format("Malformed storage at line %d because '%s'.", lineNumber, reason), cause);
+		this.lineNumber = lineNumber;
+		this.reason = reason;
+	}
+
+	/**
+	 * Get the line where the error was found.
+	 * 
+	 * @return int Line number, starting at 1.
+	 */
+	public int getLineNumber()
+	{
+		return lineNumber;
+	}
+
+	/**
+	 * Get why the storage is malformed, without the line.
+	 * 
+	 * @return String Reason of the error.
+	 */
+	public String getReason()
+	{
+		return reason;
+	}
+}
@@ -0,0 +1,11 @@
+package inventairePackage.exceptions;
+
+public class PlayerNotFoundException extends Exception
+{
+	private static final long serialVersionUID = -4021894737290587326L;
+
+	public PlayerNotFoundException(String cle)
+	{
+		super(String.format("No player has the key '%s'.", cle));
+	}
+}
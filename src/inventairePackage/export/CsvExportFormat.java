@@ -0,0 +1,84 @@
+package inventairePackage.export;
+
+import inventairePackage.Carte;
+import inventairePackage.Joueur;
+import inventairePackage.utils.QuotedFields;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Export for spreadsheets (RFC 4180): a line of column names, then one line per card with the key and the name of its
+ * player. A player without cards has one line with empty card columns. A field is put between quotes only if it
+ * contains a comma, a quote or a new line.
+ */
+public class CsvExportFormat implements ExportFormat
+{
+	public static final String EXTENSION = ".csv";
+
+	@Override
+	public String getExtension()
+	{
+		return EXTENSION;
+	}
+
+	@Override
+	public void appendHeader(Appendable out) throws IOException
+	{
+		out.append("cle,nomJoueur,titreCarte,nomEquipe,anneeSortie\r\n");
+	}
+
+	@Override
+	public void appendPlayer(Appendable out, Joueur joueur) throws IOException
+	{
+		List<Carte> cartes = joueur.getCartes();
+		if (cartes.isEmpty()) {
+			appendField(out, joueur.getCle());
+			out.append(',');
+			appendField(out, joueur.getNomJoueur());
+			out.append(",,,\r\n");
+			return;
+		}
+		for (int i = 0; i < cartes.size(); ++i) {
+			Carte carte = cartes.get(i);
+			appendField(out, joueur.getCle());
+			out.append(',');
+			appendField(out, joueur.getNomJoueur());
+			out.append(',');
+			appendField(out, carte.getTitreCarte());
+			out.append(',');
+			appendField(out, carte.getNomEquipe());
+			out.append(',');
+			QuotedFields.appendNumber(out, carte.getAnneeSortie());
+			out.append("\r\n");
+		}
+	}
+
+	private static void appendField(Appendable out, String value) throws IOException
+	{
+		if (!needsQuotes(value)) {
+			out.append(value);
+			return;
+		}
+		out.append('"');
+		for (int i = 0; i < value.length(); ++i) {
+			char c = value.charAt(i);
+			if (c == '"') {
+				out.append('"');
+			}
+			out.append(c);
+		}
+		out.append('"');
+	}
+
+	private static boolean needsQuotes(String value)
+	{
+		for (int i = 0; i < value.length(); ++i) {
+			char c = value.charAt(i);
+			if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,39 @@
+package inventairePackage.export;
+
+import inventairePackage.Joueur;
+
+import java.io.IOException;
+
+/**
+ * Format of an export of the players. An export can't be loaded back as an inventory unless its format is the storage
+ * format, but the CSV and JSON Lines exports can be imported in bulk into an inventory (see BulkImporter).
+ */
+public interface ExportFormat
+{
+	/**
+	 * Get the extension of the files in this format.
+	 *
+	 * @return String Extension with the dot (".csv").
+	 */
+	String getExtension();
+
+	/**
+	 * Write what comes before the first player, if anything.
+	 *
+	 * @param out
+	 *            Where the header is written.
+	 * @throws IOException
+	 */
+	void appendHeader(Appendable out) throws IOException;
+
+	/**
+	 * Write a player and his cards, with the end of line.
+	 *
+	 * @param out
+	 *            Where the player is written.
+	 * @param joueur
+	 *            The player.
+	 * @throws IOException
+	 */
+	void appendPlayer(Appendable out, Joueur joueur) throws IOException;
+}
@@ -0,0 +1,46 @@
+package inventairePackage.export;
+
+import inventairePackage.storage.TextStorageFormat;
+
+/**
+ * Find the format of an export file.
+ */
+public class ExportFormats
+{
+	public static final String GZIP_EXTENSION = ".gz";
+
+	/**
+	 * Get the format matching the extension of a file name, before the ".gz" of a compressed file.
+	 *
+	 * @param fileName
+	 *            Name of the file.
+	 * @return ExportFormat The format or null if the extension is not known.
+	 */
+	public static ExportFormat fromFileName(String fileName)
+	{
+		String lowerCaseName = fileName.toLowerCase();
+		if (isGzip(lowerCaseName)) {
+			lowerCaseName = lowerCaseName.substring(0, lowerCaseName.length() - GZIP_EXTENSION.length());
+		}
+		if (lowerCaseName.endsWith(CsvExportFormat.EXTENSION)) {
+			return new CsvExportFormat();
+		} else if (lowerCaseName.endsWith(JsonLinesExportFormat.EXTENSION)) {
+			return new JsonLinesExportFormat();
+		} else if (lowerCaseName.endsWith(TextStorageFormat.EXTENSION)) {
+			return new StorageExportFormat();
+		}
+		return null;
+	}
+
+	/**
+	 * Check if a file must be compressed.
+	 *
+	 * @param fileName
+	 *            Name of the file.
+	 * @return boolean true if the name ends with ".gz".
+	 */
+	public static boolean isGzip(String fileName)
+	{
+		return fileName.toLowerCase().endsWith(GZIP_EXTENSION);
+	}
+}
@@ -0,0 +1,94 @@
+package inventairePackage.export;
+
+import inventairePackage.Carte;
+import inventairePackage.Joueur;
+import inventairePackage.utils.QuotedFields;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Export in JSON Lines: one JSON object per line and per player, with his cards in an array.
+ *
+ * <pre>
+ * {"cle":"...","nomJoueur":"...","cartes":[{"titreCarte":"...","nomEquipe":"...","anneeSortie":1994}]}
+ * </pre>
+ */
+public class JsonLinesExportFormat implements ExportFormat
+{
+	public static final String EXTENSION = ".jsonl";
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	@Override
+	public String getExtension()
+	{
+		return EXTENSION;
+	}
+
+	@Override
+	public void appendHeader(Appendable out)
+	{
+		// Every line stands alone
+	}
+
+	@Override
+	public void appendPlayer(Appendable out, Joueur joueur) throws IOException
+	{
+		out.append("{\"cle\":");
+		appendString(out, joueur.getCle());
+		out.append(",\"nomJoueur\":");
+		appendString(out, joueur.getNomJoueur());
+		out.append(",\"cartes\":[");
+		List<Carte> cartes = joueur.getCartes();
+		for (int i = 0; i < cartes.size(); ++i) {
+			Carte carte = cartes.get(i);
+			if (i > 0) {
+				out.append(',');
+			}
+			out.append("{\"titreCarte\":");
+			appendString(out, carte.getTitreCarte());
+			out.append(",\"nomEquipe\":");
+			appendString(out, carte.getNomEquipe());
+			out.append(",\"anneeSortie\":");
+			QuotedFields.appendNumber(out, carte.getAnneeSortie());
+			out.append('}');
+		}
+		out.append("]}\n");
+	}
+
+	/**
+	 * Write a JSON string, with the quotes, the backslashes and the control characters escaped.
+	 */
+	private static void appendString(Appendable out, String value) throws IOException
+	{
+		out.append('"');
+		for (int i = 0; i < value.length(); ++i) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"':
+					out.append("\\\"");
+					break;
+				case '\\':
+					out.append("\\\\");
+					break;
+				case '\n':
+					out.append("\\n");
+					break;
+				case '\r':
+					out.append("\\r");
+					break;
+				case '\t':
+					out.append("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						out.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+					} else {
+						out.append(c);
+					}
+			}
+		}
+		out.append('"');
+	}
+}
@@ -0,0 +1,320 @@
+package inventairePackage.export;
+
+import inventairePackage.Joueur;
+import inventairePackage.storage.SnapshotWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Export players to a file. The players are cut in chunks that are encoded (and compressed) in parallel, then the
+ * chunks are written in order through the channel of the file. Only a few chunks wait to be written at the same time,
+ * so the memory used doesn't depend on the number of players: the players can be given one by one by a Source, without
+ * being all in memory.
+ *
+ * A compressed file is made of one gzip member per chunk, which gzip and GZIPInputStream read as one stream. The file
+ * is replaced only once it is completely written.
+ */
+public class PlayerExporter
+{
+	/**
+	 * Players given one by one to the export.
+	 */
+	public interface Source
+	{
+		/**
+		 * Give every player to export.
+		 *
+		 * @param consumer
+		 *            Called for every player, in the order of the file.
+		 */
+		void forEachPlayer(Consumer<Joueur> consumer);
+	}
+
+	private static final int CHUNK_SIZE = 4096;
+	// Chunks encoded ahead of the one being written, for every thread of the pool
+	private static final int CHUNKS_AHEAD_PER_THREAD = 2;
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructor using the common ForkJoinPool.
+	 */
+	public PlayerExporter()
+	{
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param pool
+	 *            Pool used to encode the chunks.
+	 */
+	public PlayerExporter(ForkJoinPool pool)
+	{
+		this.pool = pool;
+	}
+
+	/**
+	 * Export players, the format and the compression are found with the extension of the file.
+	 *
+	 * @param file
+	 *            File to write, replaced if it exists.
+	 * @param players
+	 *            Players to write, in this order.
+	 * @throws IOException
+	 *             The extension is unknown or the file was not written.
+	 */
+	public void export(File file, List<Joueur> players) throws IOException
+	{
+		ExportFormat format = ExportFormats.fromFileName(file.getName());
+		if (format == null) {
+			throw new IOException(String.format("The format of file '%s' is unknown, use %s, %s or %s (%s to compress).",
+					file.getName(), CsvExportFormat.EXTENSION, JsonLinesExportFormat.EXTENSION,
+					new StorageExportFormat().getExtension(), ExportFormats.GZIP_EXTENSION));
+		}
+		export(file, players, format, ExportFormats.isGzip(file.getName()));
+	}
+
+	/**
+	 * Export players.
+	 *
+	 * @param file
+	 *            File to write, replaced if it exists.
+	 * @param players
+	 *            Players to write, in this order.
+	 * @param format
+	 *            Format of the file.
+	 * @param gzip
+	 *            true to compress the file.
+	 * @throws IOException
+	 *             The file was not written.
+	 */
+	public void export(File file, final List<Joueur> players, ExportFormat format, boolean gzip) throws IOException
+	{
+		export(file, new Source() {
+			@Override
+			public void forEachPlayer(Consumer<Joueur> consumer)
+			{
+				for (Joueur player : players) {
+					consumer.accept(player);
+				}
+			}
+		}, format, gzip);
+	}
+
+	/**
+	 * Export players given one by one.
+	 *
+	 * @param file
+	 *            File to write, replaced if it exists.
+	 * @param players
+	 *            Players to write, in the order they are given.
+	 * @param format
+	 *            Format of the file.
+	 * @param gzip
+	 *            true to compress the file.
+	 * @throws IOException
+	 *             The file was not written.
+	 */
+	public void export(File file, final Source players, final ExportFormat format, final boolean gzip)
+			throws IOException
+	{
+		SnapshotWriter.write(file, new SnapshotWriter.Content() {
+			@Override
+			public void writeTo(FileChannel channel) throws IOException
+			{
+				ChunkWriter writer = new ChunkWriter(channel, format, gzip);
+				try {
+					players.forEachPlayer(writer);
+					writer.finish();
+				} catch (UncheckedIOException e) {
+					throw e.getCause();
+				} finally {
+					writer.cancel();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Cut the players in chunks, encode the chunks in the pool and write them in order.
+	 */
+	private class ChunkWriter implements Consumer<Joueur>
+	{
+		private final FileChannel channel;
+		private final ExportFormat format;
+		private final boolean gzip;
+		private final int maxAhead = Math.max(1, pool.getParallelism()) * CHUNKS_AHEAD_PER_THREAD;
+		private final Deque<ChunkTask> running = new ArrayDeque<ChunkTask>();
+		private List<Joueur> chunk = new ArrayList<Joueur>(CHUNK_SIZE);
+		// The header is in the first chunk, there is always one
+		private boolean first = true;
+
+		private ChunkWriter(FileChannel channel, ExportFormat format, boolean gzip)
+		{
+			this.channel = channel;
+			this.format = format;
+			this.gzip = gzip;
+		}
+
+		/**
+		 * Add a player to the chunk, encoded once the chunk is full.
+		 *
+		 * @throws UncheckedIOException
+		 *             A chunk couldn't be encoded or written.
+		 */
+		@Override
+		public void accept(Joueur player)
+		{
+			chunk.add(player);
+			if (chunk.size() == CHUNK_SIZE) {
+				try {
+					encodeChunk();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+
+		/**
+		 * Encode the last chunk and write all the chunks.
+		 */
+		private void finish() throws IOException
+		{
+			if (first || !chunk.isEmpty()) {
+				encodeChunk();
+			}
+			while (!running.isEmpty()) {
+				writeFirst();
+			}
+		}
+
+		/**
+		 * Stop encoding after an error.
+		 */
+		private void cancel()
+		{
+			for (ChunkTask task : running) {
+				task.cancel(false);
+			}
+		}
+
+		private void encodeChunk() throws IOException
+		{
+			// Wait for the oldest chunk when enough chunks are encoded ahead
+			if (running.size() == maxAhead) {
+				writeFirst();
+			}
+			ChunkTask task = new ChunkTask(chunk, format, gzip, first);
+			running.addLast(task);
+			pool.execute(task);
+			chunk = new ArrayList<Joueur>(CHUNK_SIZE);
+			first = false;
+		}
+
+		private void writeFirst() throws IOException
+		{
+			ByteBuffer bytes = join(running.removeFirst());
+			while (bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+		}
+	}
+
+	private static ByteBuffer join(ChunkTask task) throws IOException
+	{
+		ChunkResult result;
+		try {
+			result = task.join();
+		} catch (CancellationException e) {
+			throw new IOException("The export was cancelled.", e);
+		}
+		if (result.error != null) {
+			throw result.error;
+		}
+		return result.bytes;
+	}
+
+	/**
+	 * Bytes of a chunk, or the error that stopped its encoding.
+	 */
+	private static class ChunkResult
+	{
+		private ByteBuffer bytes;
+		private IOException error;
+	}
+
+	/**
+	 * Encode a chunk of players to UTF-8, compressed if asked.
+	 */
+	private static class ChunkTask extends RecursiveTask<ChunkResult>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final List<Joueur> players;
+		private final ExportFormat format;
+		private final boolean gzip;
+		private final boolean first;
+
+		private ChunkTask(List<Joueur> players, ExportFormat format, boolean gzip, boolean first)
+		{
+			this.players = players;
+			this.format = format;
+			this.gzip = gzip;
+			this.first = first;
+		}
+
+		@Override
+		protected ChunkResult compute()
+		{
+			ChunkResult result = new ChunkResult();
+			try {
+				StringBuilder chars = new StringBuilder(players.size() * 128 + 64);
+				if (first) {
+					format.appendHeader(chars);
+				}
+				for (int i = 0; i < players.size(); ++i) {
+					format.appendPlayer(chars, players.get(i));
+				}
+
+				// A name with a lone surrogate is written with '?' instead of failing the export
+				CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+						.onMalformedInput(CodingErrorAction.REPLACE)
+						.onUnmappableCharacter(CodingErrorAction.REPLACE);
+				ByteBuffer bytes = encoder.encode(CharBuffer.wrap(chars));
+				result.bytes = gzip ? compress(bytes) : bytes;
+			} catch (IOException e) {
+				result.error = e;
+			}
+			return result;
+		}
+
+		private static ByteBuffer compress(ByteBuffer bytes) throws IOException
+		{
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.remaining() / 4 + 64);
+			try (GZIPOutputStream output = new GZIPOutputStream(compressed, 64 * 1024)) {
+				output.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+			}
+			return ByteBuffer.wrap(compressed.toByteArray());
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package inventairePackage.export;
+
+import inventairePackage.Joueur;
+import inventairePackage.storage.TextStorageFormat;
+
+import java.io.IOException;
+
+/**
+ * Export in the text storage format, the file can be opened as an inventory.
+ */
+public class StorageExportFormat implements ExportFormat
+{
+	@Override
+	public String getExtension()
+	{
+		return TextStorageFormat.EXTENSION;
+	}
+
+	@Override
+	public void appendHeader(Appendable out)
+	{
+		// No header in a storage file
+	}
+
+	@Override
+	public void appendPlayer(Appendable out, Joueur joueur) throws IOException
+	{
+		joueur.appendCSVEntry(out);
+		out.append('\n');
+	}
+}
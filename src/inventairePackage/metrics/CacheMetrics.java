@@ -0,0 +1,108 @@
+package inventairePackage.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of a cache: hits, misses, evictions and write-backs. The counters can be updated from many threads.
+ */
+public class CacheMetrics implements CacheMetricsMBean
+{
+	private final String name;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong writeBacks = new AtomicLong();
+
+	/**
+	 * Constructor, use Metrics.getCache to have metrics published through JMX.
+	 *
+	 * @param name
+	 *            Name of the cache.
+	 */
+	public CacheMetrics(String name)
+	{
+		this.name = name;
+	}
+
+	/**
+	 * Get the name of the cache.
+	 *
+	 * @return String Name of the cache.
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * Record a value found in the cache.
+	 */
+	public void recordHit()
+	{
+		hits.incrementAndGet();
+	}
+
+	/**
+	 * Record a value not found in the cache.
+	 */
+	public void recordMiss()
+	{
+		misses.incrementAndGet();
+	}
+
+	/**
+	 * Record a value dropped from the cache.
+	 */
+	public void recordEviction()
+	{
+		evictions.incrementAndGet();
+	}
+
+	/**
+	 * Record a changed value written back.
+	 */
+	public void recordWriteBack()
+	{
+		writeBacks.incrementAndGet();
+	}
+
+	@Override
+	public long getHits()
+	{
+		return hits.get();
+	}
+
+	@Override
+	public long getMisses()
+	{
+		return misses.get();
+	}
+
+	@Override
+	public double getHitPercentage()
+	{
+		long hitCount = hits.get();
+		long lookups = hitCount + misses.get();
+		return lookups == 0 ? 0.0 : 100.0 * hitCount / lookups;
+	}
+
+	@Override
+	public long getEvictions()
+	{
+		return evictions.get();
+	}
+
+	@Override
+	public long getWriteBacks()
+	{
+		return writeBacks.get();
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format(Locale.ROOT, "%s hits=%d misses=%d hits%%=%.1f evictions=%d writeBacks=%d", name,
+				getHits(), getMisses(), getHitPercentage(), getEvictions(), getWriteBacks());
+	}
+}
@@ -0,0 +1,42 @@
+package inventairePackage.metrics;
+
+/**
+ * Measures of a cache, read through JMX.
+ */
+public interface CacheMetricsMBean
+{
+	/**
+	 * Get the number of values found in the cache.
+	 *
+	 * @return long Number of hits.
+	 */
+	long getHits();
+
+	/**
+	 * Get the number of values not found in the cache.
+	 *
+	 * @return long Number of misses.
+	 */
+	long getMisses();
+
+	/**
+	 * Get the part of the lookups found in the cache.
+	 *
+	 * @return double Percentage of hits, 0 without lookups.
+	 */
+	double getHitPercentage();
+
+	/**
+	 * Get the number of values dropped from the cache.
+	 *
+	 * @return long Number of evictions.
+	 */
+	long getEvictions();
+
+	/**
+	 * Get the number of changed values written when they were dropped or flushed.
+	 *
+	 * @return long Number of write-backs.
+	 */
+	long getWriteBacks();
+}
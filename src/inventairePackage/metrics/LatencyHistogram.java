@@ -0,0 +1,132 @@
+package inventairePackage.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Distribution of durations in nanoseconds, in buckets of logarithmic size: every power of 2 is split in 8 buckets, so
+ * a percentile is known within 12.5 % whatever the duration, with a fixed memory of a few kilobytes. The durations can
+ * be recorded from many threads without any lock.
+ */
+public class LatencyHistogram
+{
+	// Durations under this are counted exactly
+	private static final int LINEAR_BUCKETS = 16;
+	// Buckets by power of 2, a power of 2 as well
+	private static final int SUB_BUCKETS = 8;
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int BUCKETS = LINEAR_BUCKETS + (63 - 4) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Record a duration.
+	 *
+	 * @param nanos
+	 *            Duration in nanoseconds, a negative duration counts as 0.
+	 */
+	public void record(long nanos)
+	{
+		long value = Math.max(0, nanos);
+		counts.incrementAndGet(bucketOf(value));
+		count.incrementAndGet();
+		total.addAndGet(value);
+		long previous = max.get();
+		while (value > previous && !max.compareAndSet(previous, value)) {
+			previous = max.get();
+		}
+	}
+
+	/**
+	 * Get the number of durations recorded.
+	 *
+	 * @return long Number of durations.
+	 */
+	public long getCount()
+	{
+		return count.get();
+	}
+
+	/**
+	 * Get the sum of the durations recorded.
+	 *
+	 * @return long Nanoseconds.
+	 */
+	public long getTotal()
+	{
+		return total.get();
+	}
+
+	/**
+	 * Get the longest duration recorded.
+	 *
+	 * @return long Nanoseconds.
+	 */
+	public long getMax()
+	{
+		return max.get();
+	}
+
+	/**
+	 * Get the mean of the durations recorded.
+	 *
+	 * @return double Nanoseconds, 0 if nothing was recorded.
+	 */
+	public double getMean()
+	{
+		long recorded = count.get();
+		return recorded == 0 ? 0 : (double) total.get() / recorded;
+	}
+
+	/**
+	 * Get the duration under which a part of the durations recorded are.
+	 *
+	 * @param percentile
+	 *            Part of the durations, from 0 to 100.
+	 * @return long Upper bound of the bucket of the percentile in nanoseconds, never more than the longest duration,
+	 *         0 if nothing was recorded.
+	 */
+	public long getPercentile(double percentile)
+	{
+		long recorded = count.get();
+		if (recorded == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(recorded * Math.min(100, Math.max(0, percentile)) / 100));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; ++i) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(upperBoundOf(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	private static int bucketOf(long value)
+	{
+		if (value < LINEAR_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return LINEAR_BUCKETS + (exponent - 4) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * Get the largest duration of a bucket.
+	 */
+	private static long upperBoundOf(int bucket)
+	{
+		if (bucket < LINEAR_BUCKETS) {
+			return bucket;
+		}
+		int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 4;
+		long subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+		long lowerBound = (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+		return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+}
@@ -0,0 +1,121 @@
+package inventairePackage.metrics;
+
+import inventairePackage.utils.Logs;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Metrics of the operations and of the caches of the program, by name. Every operation is published through JMX as
+ * inventairePackage:type=Operation,name=&lt;name&gt; and every cache as inventairePackage:type=Cache,name=&lt;name&gt;
+ * the first time their metrics are asked for.
+ */
+public class Metrics
+{
+	public static final String JMX_DOMAIN = "inventairePackage";
+
+	private static Logger logger = Logger.getLogger("InventoryManager");
+	private static final ConcurrentHashMap<String, OperationMetrics> operations =
+			new ConcurrentHashMap<String, OperationMetrics>();
+	private static final ConcurrentHashMap<String, CacheMetrics> caches = new ConcurrentHashMap<String, CacheMetrics>();
+
+	/**
+	 * Get the metrics of an operation, created the first time.
+	 *
+	 * @param name
+	 *            Name of the operation.
+	 * @return OperationMetrics The metrics of the operation.
+	 */
+	public static OperationMetrics get(String name)
+	{
+		return operations.computeIfAbsent(name, new Function<String, OperationMetrics>() {
+			@Override
+			public OperationMetrics apply(String operation)
+			{
+				OperationMetrics metrics = new OperationMetrics(operation);
+				register(metrics, "Operation", operation);
+				return metrics;
+			}
+		});
+	}
+
+	/**
+	 * Get the metrics of a cache, created the first time.
+	 *
+	 * @param name
+	 *            Name of the cache.
+	 * @return CacheMetrics The metrics of the cache.
+	 */
+	public static CacheMetrics getCache(String name)
+	{
+		return caches.computeIfAbsent(name, new Function<String, CacheMetrics>() {
+			@Override
+			public CacheMetrics apply(String cache)
+			{
+				CacheMetrics metrics = new CacheMetrics(cache);
+				register(metrics, "Cache", cache);
+				return metrics;
+			}
+		});
+	}
+
+	/**
+	 * Get the metrics of all the operations.
+	 *
+	 * @return List<OperationMetrics> The metrics sorted by name.
+	 */
+	public static List<OperationMetrics> getAll()
+	{
+		List<OperationMetrics> all = new ArrayList<OperationMetrics>(operations.values());
+		Collections.sort(all, new Comparator<OperationMetrics>() {
+			@Override
+			public int compare(OperationMetrics o1, OperationMetrics o2)
+			{
+				return o1.getName().compareTo(o2.getName());
+			}
+		});
+		return all;
+	}
+
+	/**
+	 * Write the metrics of all the operations, one line by operation, then the metrics of the caches.
+	 *
+	 * @param out
+	 *            Where the metrics are written.
+	 * @throws IOException
+	 */
+	public static void appendTo(Appendable out) throws IOException
+	{
+		for (OperationMetrics metrics : getAll()) {
+			out.append(metrics.toString()).append('\n');
+		}
+		List<String> names = new ArrayList<String>(caches.keySet());
+		Collections.sort(names);
+		for (String name : names) {
+			out.append(caches.get(name).toString()).append('\n');
+		}
+	}
+
+	/**
+	 * Publish the metrics through JMX. The program works without them if JMX is not available.
+	 */
+	private static void register(Object metrics, String type, String name)
+	{
+		try {
+			ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+		} catch (JMException | RuntimeException e) {
+			Logs.warning(logger, "Metrics of '%s' not published through JMX. %s", name, e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package inventairePackage.metrics;
+
+import inventairePackage.storage.SnapshotWriter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Write the metrics of all the operations to a file at a regular interval, on a background thread. The file is
+ * replaced atomically, so it can be read at any time.
+ */
+public class MetricsDumper implements Closeable
+{
+	public static final String EXTENSION = ".metrics";
+	public static final long DEFAULT_PERIOD_SECONDS = 10;
+
+	private static Logger logger = Logger.getLogger("InventoryManager");
+
+	private final File file;
+	private final ScheduledExecutorService scheduler;
+
+	/**
+	 * Constructor, starts to write the metrics.
+	 *
+	 * @param file
+	 *            File where the metrics are written.
+	 * @param periodSeconds
+	 *            Number of seconds between two writes.
+	 */
+	public MetricsDumper(File file, long periodSeconds)
+	{
+		this.file = file;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, "metrics-dump");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduler.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run()
+			{
+				dump();
+			}
+		}, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Write the metrics now.
+	 */
+	public synchronized void dump()
+	{
+		try {
+			StringBuilder text = new StringBuilder(4096);
+			text.append("# ").append(new Date().toString()).append('\n');
+			Metrics.appendTo(text);
+			final ByteBuffer bytes = StandardCharsets.UTF_8.encode(text.toString());
+			SnapshotWriter.write(file, new SnapshotWriter.Content() {
+				@Override
+				public void writeTo(FileChannel channel) throws IOException
+				{
+					while (bytes.hasRemaining()) {
+						channel.write(bytes);
+					}
+				}
+			});
+		} catch (IOException e) {
+			logger.severe("Failed to write metrics. " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Stop the writes, after writing the metrics a last time.
+	 */
+	@Override
+	public void close()
+	{
+		scheduler.shutdownNow();
+		dump();
+	}
+}
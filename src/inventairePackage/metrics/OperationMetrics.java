@@ -0,0 +1,177 @@
+package inventairePackage.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and distribution of the durations of an operation. An operation measures itself with:
+ *
+ * <pre>
+ * long start = System.nanoTime();
+ * ...
+ * metrics.record(start, records, bytes);
+ * </pre>
+ *
+ * and with recordError when it fails. The metrics can be updated from many threads.
+ */
+public class OperationMetrics implements OperationMetricsMBean
+{
+	private static final double NANOS_PER_MILLI = 1000000.0;
+	private static final double NANOS_PER_SECOND = 1000000000.0;
+
+	private final String name;
+	private final LatencyHistogram latencies = new LatencyHistogram();
+	private final AtomicLong errors = new AtomicLong();
+	private final AtomicLong records = new AtomicLong();
+	private final AtomicLong bytes = new AtomicLong();
+
+	/**
+	 * Constructor, use Metrics.get to have metrics published through JMX.
+	 *
+	 * @param name
+	 *            Name of the operation.
+	 */
+	public OperationMetrics(String name)
+	{
+		this.name = name;
+	}
+
+	/**
+	 * Get the name of the operation.
+	 *
+	 * @return String Name of the operation.
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * Record an operation done.
+	 *
+	 * @param start
+	 *            System.nanoTime() when the operation started.
+	 */
+	public void record(long start)
+	{
+		recordDuration(System.nanoTime() - start);
+	}
+
+	/**
+	 * Record an operation done, made of pieces of work timed separately.
+	 *
+	 * @param nanos
+	 *            Duration of the operation, in nanoseconds.
+	 */
+	public void recordDuration(long nanos)
+	{
+		latencies.record(nanos);
+	}
+
+	/**
+	 * Record an operation done with the records and the bytes it handled.
+	 *
+	 * @param start
+	 *            System.nanoTime() when the operation started.
+	 * @param recordCount
+	 *            Number of records handled.
+	 * @param byteCount
+	 *            Number of bytes handled.
+	 */
+	public void record(long start, long recordCount, long byteCount)
+	{
+		record(start);
+		records.addAndGet(recordCount);
+		bytes.addAndGet(byteCount);
+	}
+
+	/**
+	 * Record an operation that failed, its duration is not recorded.
+	 */
+	public void recordError()
+	{
+		errors.incrementAndGet();
+	}
+
+	@Override
+	public long getCount()
+	{
+		return latencies.getCount();
+	}
+
+	@Override
+	public long getErrors()
+	{
+		return errors.get();
+	}
+
+	@Override
+	public double getMeanMillis()
+	{
+		return latencies.getMean() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getP50Millis()
+	{
+		return latencies.getPercentile(50) / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getP90Millis()
+	{
+		return latencies.getPercentile(90) / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getP99Millis()
+	{
+		return latencies.getPercentile(99) / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getMaxMillis()
+	{
+		return latencies.getMax() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public long getRecords()
+	{
+		return records.get();
+	}
+
+	@Override
+	public long getBytes()
+	{
+		return bytes.get();
+	}
+
+	@Override
+	public double getRecordsPerSecond()
+	{
+		long total = latencies.getTotal();
+		return total == 0 ? 0 : records.get() * NANOS_PER_SECOND / total;
+	}
+
+	@Override
+	public double getBytesPerSecond()
+	{
+		long total = latencies.getTotal();
+		return total == 0 ? 0 : bytes.get() * NANOS_PER_SECOND / total;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder line = new StringBuilder(160);
+		line.append(String.format(Locale.ROOT, "%s count=%d errors=%d mean=%.3fms p50=%.3fms p90=%.3fms p99=%.3fms"
+				+ " max=%.3fms", name, getCount(), getErrors(), getMeanMillis(), getP50Millis(), getP90Millis(),
+				getP99Millis(), getMaxMillis()));
+		if (records.get() > 0 || bytes.get() > 0) {
+			line.append(String.format(Locale.ROOT, " records=%d bytes=%d records/s=%.0f bytes/s=%.0f", getRecords(),
+					getBytes(), getRecordsPerSecond(), getBytesPerSecond()));
+		}
+		return line.toString();
+	}
+}
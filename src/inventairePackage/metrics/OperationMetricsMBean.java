@@ -0,0 +1,84 @@
+package inventairePackage.metrics;
+
+/**
+ * Measures of an operation, read through JMX.
+ */
+public interface OperationMetricsMBean
+{
+	/**
+	 * Get the number of operations done.
+	 *
+	 * @return long Number of operations.
+	 */
+	long getCount();
+
+	/**
+	 * Get the number of operations that failed.
+	 *
+	 * @return long Number of errors.
+	 */
+	long getErrors();
+
+	/**
+	 * Get the mean duration of the operations.
+	 *
+	 * @return double Milliseconds.
+	 */
+	double getMeanMillis();
+
+	/**
+	 * Get the median duration of the operations.
+	 *
+	 * @return double Milliseconds.
+	 */
+	double getP50Millis();
+
+	/**
+	 * Get the duration under which 90 % of the operations are.
+	 *
+	 * @return double Milliseconds.
+	 */
+	double getP90Millis();
+
+	/**
+	 * Get the duration under which 99 % of the operations are.
+	 *
+	 * @return double Milliseconds.
+	 */
+	double getP99Millis();
+
+	/**
+	 * Get the longest duration of the operations.
+	 *
+	 * @return double Milliseconds.
+	 */
+	double getMaxMillis();
+
+	/**
+	 * Get the number of records handled by the operations.
+	 *
+	 * @return long Number of records.
+	 */
+	long getRecords();
+
+	/**
+	 * Get the number of bytes handled by the operations.
+	 *
+	 * @return long Number of bytes.
+	 */
+	long getBytes();
+
+	/**
+	 * Get the number of records handled by second of operation.
+	 *
+	 * @return double Records per second.
+	 */
+	double getRecordsPerSecond();
+
+	/**
+	 * Get the number of bytes handled by second of operation.
+	 *
+	 * @return double Bytes per second.
+	 */
+	double getBytesPerSecond();
+}
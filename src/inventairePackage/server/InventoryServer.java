@@ -0,0 +1,229 @@
+package inventairePackage.server;
+
+import inventairePackage.BatchRunner;
+import inventairePackage.InventoryService;
+import inventairePackage.exceptions.FailedToSaveInventoryException;
+import inventairePackage.utils.Logs;
+import inventairePackage.utils.Threads;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Share an inventory with the other programs of the computer. The server listens on the loopback address and every
+ * connection is a session of batch commands (see BatchRunner), served by its own thread. The threads are virtual
+ * threads when the Java version has them, so thousands of connections waiting for their client or for the disk don't
+ * hold threads of the system. The inventory stays in memory and is saved periodically.
+ */
+public class InventoryServer
+{
+	public static final int DEFAULT_PORT = 4747;
+	public static final long DEFAULT_SAVE_PERIOD_SECONDS = 5;
+
+	private static Logger logger = Logger.getLogger("InventoryManager");
+	// Connections waiting to be accepted
+	private static final int BACKLOG = 1024;
+	private static final int BUFFER_SIZE = 8 * 1024;
+	// Time given to the running commands when the server is closed
+	private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+	private final InventoryService service;
+	private final int port;
+	private final long savePeriodSeconds;
+	private final Set<Socket> connections = Collections.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+	private ServerSocket serverSocket;
+	private ExecutorService connectionThreads;
+	private ScheduledExecutorService saver;
+	private volatile boolean closed = false;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param service
+	 *            The inventory, it must accept several threads at the same time.
+	 * @param port
+	 *            Port to listen to, 0 for any free port.
+	 * @param savePeriodSeconds
+	 *            Time between two saves of the inventory.
+	 */
+	public InventoryServer(InventoryService service, int port, long savePeriodSeconds)
+	{
+		this.service = service;
+		this.port = port;
+		this.savePeriodSeconds = savePeriodSeconds;
+	}
+
+	/**
+	 * Start to listen and to save the inventory periodically.
+	 *
+	 * @throws IOException
+	 *             The port couldn't be opened.
+	 */
+	public void start() throws IOException
+	{
+		serverSocket = new ServerSocket();
+		serverSocket.setReuseAddress(true);
+		serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+		connectionThreads = Threads.newPerTaskExecutor("inventory-connection");
+
+		saver = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, "inventory-saver");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		saver.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run()
+			{
+				try {
+					service.save();
+				} catch (FailedToSaveInventoryException e) {
+					logger.severe("Failed to save inventory. " + e.getMessage());
+				}
+			}
+		}, savePeriodSeconds, savePeriodSeconds, TimeUnit.SECONDS);
+
+		Logs.info(logger, "Inventory server listening on %s with %s threads.", serverSocket.getLocalSocketAddress(),
+				Threads.hasVirtualThreads() ? "virtual" : "platform");
+	}
+
+	/**
+	 * Get the port the server listens to.
+	 *
+	 * @return int The port.
+	 */
+	public int getPort()
+	{
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Accept the connections until the server is closed. Every connection is served by its own thread.
+	 *
+	 * @throws IOException
+	 *             The server socket failed.
+	 */
+	public void acceptConnections() throws IOException
+	{
+		while (!closed) {
+			final Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch (SocketException e) {
+				if (closed) {
+					return;
+				}
+				throw e;
+			}
+			connections.add(socket);
+			try {
+				connectionThreads.execute(new Runnable() {
+					@Override
+					public void run()
+					{
+						serve(socket);
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				// The server was closed meanwhile
+				connections.remove(socket);
+				socket.close();
+			}
+		}
+	}
+
+	/**
+	 * Run the commands of a connection until the client closes it.
+	 */
+	private void serve(Socket socket)
+	{
+		try {
+			socket.setTcpNoDelay(true);
+			Reader commands = new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8);
+			Writer output = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8),
+					BUFFER_SIZE);
+			new BatchRunner(service, output, true).run(commands);
+		} catch (IOException e) {
+			if (!closed) {
+				Logs.fine(logger, "Connection ended. %s", e.getMessage());
+			}
+		} finally {
+			connections.remove(socket);
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Already closed
+			}
+		}
+	}
+
+	/**
+	 * Stop the server: no new connection is accepted, the open ones are closed and the inventory is saved and closed.
+	 * The server may not be started, or its start may have failed.
+	 *
+	 * @throws FailedToSaveInventoryException
+	 */
+	public void close() throws FailedToSaveInventoryException
+	{
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (serverSocket != null) {
+			try {
+				serverSocket.close();
+			} catch (IOException e) {
+				logger.severe("Failed to close server. " + e.getMessage());
+			}
+		}
+		for (Socket socket : connections) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Already closed
+			}
+		}
+		// Let the commands already running finish before the inventory is closed
+		if (connectionThreads != null) {
+			connectionThreads.shutdown();
+			try {
+				if (!connectionThreads.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+					connectionThreads.shutdownNow();
+					Logs.warning(logger, "%d sessions still running after %d ms, the inventory is closed anyway.",
+							connections.size(), CLOSE_TIMEOUT_MILLIS);
+				}
+			} catch (InterruptedException e) {
+				connectionThreads.shutdownNow();
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (saver != null) {
+			saver.shutdownNow();
+		}
+		service.close();
+	}
+}
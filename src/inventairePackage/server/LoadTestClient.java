@@ -0,0 +1,214 @@
+package inventairePackage.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test of an inventory server. Every connection has its own thread that sends commands one after the other and
+ * waits for each answer: a third adds a player, a third shows a player and a third adds a card to a player. At the
+ * end, the number of commands per second and the time of the answers are shown.
+ */
+public class LoadTestClient
+{
+	private static final long CONNECTION_STACK_SIZE = 256 * 1024;
+
+	private final String host;
+	private final int port;
+	private final int numberOfConnections;
+	private final int commandsPerConnection;
+	private final AtomicInteger errors = new AtomicInteger();
+	private final long[][] latencies;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param host
+	 *            Host of the server.
+	 * @param port
+	 *            Port of the server.
+	 * @param numberOfConnections
+	 *            Number of connections open at the same time.
+	 * @param commandsPerConnection
+	 *            Number of commands sent by each connection.
+	 */
+	public LoadTestClient(String host, int port, int numberOfConnections, int commandsPerConnection)
+	{
+		this.host = host;
+		this.port = port;
+		this.numberOfConnections = numberOfConnections;
+		this.commandsPerConnection = commandsPerConnection;
+		this.latencies = new long[numberOfConnections][];
+	}
+
+	/**
+	 * Open all the connections, send the commands and show the results.
+	 *
+	 * @throws InterruptedException
+	 */
+	public void run() throws InterruptedException
+	{
+		final CountDownLatch connected = new CountDownLatch(numberOfConnections);
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[numberOfConnections];
+		for (int i = 0; i < numberOfConnections; ++i) {
+			final int connection = i;
+			threads[i] = new Thread(null, new Runnable() {
+				@Override
+				public void run()
+				{
+					runConnection(connection, connected, start);
+				}
+			}, "load-test-" + i, CONNECTION_STACK_SIZE);
+			threads[i].start();
+		}
+
+		connected.await();
+		long begin = System.nanoTime();
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long elapsed = System.nanoTime() - begin;
+
+		int count = 0;
+		for (long[] connectionLatencies : latencies) {
+			count += connectionLatencies == null ? 0 : connectionLatencies.length;
+		}
+		long[] all = new long[count];
+		int position = 0;
+		for (long[] connectionLatencies : latencies) {
+			if (connectionLatencies != null) {
+				System.arraycopy(connectionLatencies, 0, all, position, connectionLatencies.length);
+				position += connectionLatencies.length;
+			}
+		}
+		Arrays.sort(all);
+
+		System.out.println(String.format("%d connexions, %d commandes, %d erreurs en %.3f s", numberOfConnections,
+				count, errors.get(), elapsed / 1e9));
+		System.out.println(String.format("%.0f commandes/s", count / (elapsed / 1e9)));
+		if (count > 0) {
+			System.out.println(String.format("Temps de réponse (ms) : médiane %.3f, 99%% %.3f, max %.3f",
+					percentile(all, 0.50) / 1e6, percentile(all, 0.99) / 1e6, all[count - 1] / 1e6));
+		}
+	}
+
+	/**
+	 * Send the commands of one connection.
+	 */
+	private void runConnection(int connection, CountDownLatch connected, CountDownLatch start)
+	{
+		long[] connectionLatencies = new long[commandsPerConnection];
+		int sent = 0;
+		boolean counted = false;
+		Random random = new Random(connection);
+		Socket socket = null;
+		try {
+			socket = new Socket(host, port);
+			socket.setTcpNoDelay(true);
+			Writer output = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+			BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+					StandardCharsets.UTF_8));
+			connected.countDown();
+			counted = true;
+			start.await();
+
+			int players = 0;
+			String prefix = "lt-" + connection + "-";
+			for (; sent < commandsPerConnection; ++sent) {
+				int kind = players == 0 ? 0 : random.nextInt(3);
+				String cle = "\"" + prefix + (kind == 0 ? players++ : random.nextInt(players)) + "\"";
+				String command;
+				if (kind == 0) {
+					command = "add;" + cle + ";\"Joueur " + connection + "\";1;\"Recrue\";\"Équipe "
+							+ random.nextInt(30) + "\";" + (1950 + random.nextInt(70));
+				} else if (kind == 1) {
+					command = "show;" + cle;
+				} else {
+					command = "update;" + cle + ";\"Joueur " + connection + "\";1;\"Base\";\"Équipe "
+							+ random.nextInt(30) + "\";" + (1950 + random.nextInt(70));
+				}
+
+				long begin = System.nanoTime();
+				output.write(command);
+				output.write('\n');
+				output.flush();
+				if (!readAnswer(input)) {
+					errors.incrementAndGet();
+				}
+				connectionLatencies[sent] = System.nanoTime() - begin;
+			}
+		} catch (IOException e) {
+			errors.incrementAndGet();
+			System.err.println("Connexion " + connection + " : " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			// A connection that failed to open must not block the others
+			if (!counted) {
+				connected.countDown();
+			}
+			latencies[connection] = Arrays.copyOf(connectionLatencies, sent);
+			if (socket != null) {
+				try {
+					socket.close();
+				} catch (IOException e) {
+					// Already closed
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read the lines of an answer until its status.
+	 *
+	 * @return boolean true if the command succeeded.
+	 */
+	private static boolean readAnswer(BufferedReader input) throws IOException
+	{
+		String line;
+		while ((line = input.readLine()) != null) {
+			if (line.equals("OK")) {
+				return true;
+			}
+			if (line.startsWith("ERREUR")) {
+				return false;
+			}
+		}
+		throw new IOException("The server closed the connection.");
+	}
+
+	private static long percentile(long[] sorted, double fraction)
+	{
+		return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+	}
+
+	/**
+	 * Main function.
+	 *
+	 * @param args
+	 *            [host] port connections commands, the host is localhost by default.
+	 * @throws InterruptedException
+	 */
+	public static void main(String[] args) throws InterruptedException
+	{
+		if (args.length < 3) {
+			System.err.println("Usage : LoadTestClient [hôte] port connexions commandes");
+			System.exit(1);
+		}
+		int first = args.length - 3;
+		String host = first > 0 ? args[0] : "localhost";
+		new LoadTestClient(host, Integer.parseInt(args[first]), Integer.parseInt(args[first + 1]),
+				Integer.parseInt(args[first + 2])).run();
+	}
+}
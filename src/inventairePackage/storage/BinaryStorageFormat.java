@@ -0,0 +1,359 @@
+package inventairePackage.storage;
+
+import inventairePackage.Carte;
+import inventairePackage.Joueur;
+import inventairePackage.exceptions.InvalidParameterException;
+import inventairePackage.exceptions.MalformedStorageException;
+import inventairePackage.utils.StringDictionary;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary format. The file starts with a header:
+ *
+ * <pre>
+ * magic "IFTB" (4 bytes) | version (1 byte) | number of players (8 bytes) | CRC32 of the rest of the file (8 bytes)
+ * </pre>
+ *
+ * followed by the dictionary of the card titles and team names (number of strings, then the strings) and one record
+ * per player. Strings are the length of their UTF-8 bytes as a varint followed by the bytes, the numbers are varints
+ * (7 bits per byte, lowest bits first) and the cards refer to their title and team by their position in the
+ * dictionary:
+ *
+ * <pre>
+ * cle | nomJoueur | number of cards | (id of titreCarte | id of nomEquipe | anneeSortie) for each card
+ * </pre>
+ *
+ * Version 1 files, without dictionary and with the strings in the cards, can still be read.
+ *
+ * Errors are reported with the number of the record instead of a line. An empty file is an empty inventory.
+ */
+public class BinaryStorageFormat implements StorageFormat
+{
+	public static final String EXTENSION = ".bin";
+
+	private static final byte[] MAGIC = { 'I', 'F', 'T', 'B' };
+	private static final byte VERSION_WITHOUT_DICTIONARY = 1;
+	private static final byte VERSION = 2;
+	private static final int HEADER_SIZE = MAGIC.length + 1 + 8 + 8;
+	private static final int BUFFER_SIZE = 1024 * 1024;
+
+	@Override
+	public String getExtension()
+	{
+		return EXTENSION;
+	}
+
+	@Override
+	public void load(File file, PlayerConsumer consumer) throws IOException, MalformedStorageException
+	{
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			// A new storage file is empty until it is saved
+			if (channel.size() == 0) {
+				return;
+			}
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining() && channel.read(header) >= 0) {
+				// Read the whole header
+			}
+			header.flip();
+			if (header.remaining() < HEADER_SIZE) {
+				throw new MalformedStorageException(0, "the header is incomplete");
+			}
+			for (byte expected : MAGIC) {
+				if (header.get() != expected) {
+					throw new MalformedStorageException(0, "this is not a binary storage file");
+				}
+			}
+			byte version = header.get();
+			if (version != VERSION && version != VERSION_WITHOUT_DICTIONARY) {
+				throw new MalformedStorageException(0, "version " + version + " is not supported");
+			}
+			long numberOfPlayers = header.getLong();
+			long checksum = header.getLong();
+
+			Input input = new Input(channel);
+			String[] dictionary = null;
+			if (version == VERSION) {
+				int size = input.readVarint(0);
+				// Every string takes at least one byte, a corrupted size must not allocate a huge array
+				if (size > input.remaining()) {
+					throw new MalformedStorageException(0, "the dictionary is bigger than the file");
+				}
+				dictionary = new String[size];
+				for (int i = 0; i < dictionary.length; ++i) {
+					dictionary[i] = input.readString(0);
+				}
+			}
+			for (long record = 1; record <= numberOfPlayers; ++record) {
+				int recordNumber = (int) Math.min(record, Integer.MAX_VALUE);
+				consumer.accept(readPlayer(input, recordNumber, dictionary), recordNumber);
+			}
+			if (!input.isAtEnd()) {
+				throw new MalformedStorageException(0, "there is data after the last player");
+			}
+			if (input.checksum() != checksum) {
+				throw new MalformedStorageException(0, "the checksum doesn't match, the file is corrupted");
+			}
+		}
+	}
+
+	/**
+	 * Read the record of a player.
+	 */
+	private static Joueur readPlayer(Input input, int recordNumber, String[] dictionary)
+			throws IOException,
+				MalformedStorageException
+	{
+		try {
+			Joueur player = new Joueur(input.readString(recordNumber), input.readString(recordNumber));
+			int numberOfCards = input.readVarint(recordNumber);
+			for (int i = 0; i < numberOfCards; ++i) {
+				String cardTitle = readCardString(input, recordNumber, dictionary);
+				String teamName = readCardString(input, recordNumber, dictionary);
+				int cardYear = input.readVarint(recordNumber);
+				player.addCarte(new Carte(cardTitle, teamName, cardYear));
+			}
+			return player;
+		} catch (InvalidParameterException e) {
+			throw new MalformedStorageException(recordNumber, e);
+		}
+	}
+
+	/**
+	 * Read a title or a team name, from the dictionary if there is one.
+	 */
+	private static String readCardString(Input input, int recordNumber, String[] dictionary)
+			throws IOException,
+				MalformedStorageException
+	{
+		if (dictionary == null) {
+			return input.readString(recordNumber);
+		}
+		int id = input.readVarint(recordNumber);
+		if (id >= dictionary.length) {
+			throw new MalformedStorageException(recordNumber, "a card refers to a string that is not in the dictionary");
+		}
+		return dictionary[id];
+	}
+
+	@Override
+	public void save(File file, final List<Joueur> players) throws IOException
+	{
+		SnapshotWriter.write(file, new SnapshotWriter.Content() {
+			@Override
+			public void writeTo(FileChannel channel) throws IOException
+			{
+				// The header is written last, once the checksum is known
+				channel.position(HEADER_SIZE);
+				Output output = new Output(channel);
+
+				StringDictionary dictionary = new StringDictionary();
+				for (Joueur player : players) {
+					for (Carte card : player.getCartes()) {
+						dictionary.idOf(card.getTitreCarte());
+						dictionary.idOf(card.getNomEquipe());
+					}
+				}
+				output.writeVarint(dictionary.size());
+				for (int i = 0; i < dictionary.size(); ++i) {
+					output.writeString(dictionary.valueOf(i));
+				}
+
+				for (Joueur player : players) {
+					output.writeString(player.getCle());
+					output.writeString(player.getNomJoueur());
+					output.writeVarint(player.getNombreCartes());
+					for (Carte card : player.getCartes()) {
+						output.writeVarint(dictionary.idOf(card.getTitreCarte()));
+						output.writeVarint(dictionary.idOf(card.getNomEquipe()));
+						output.writeVarint(card.getAnneeSortie());
+					}
+				}
+				output.flush();
+
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				header.put(MAGIC).put(VERSION).putLong(players.size()).putLong(output.checksum());
+				header.flip();
+				channel.position(0);
+				while (header.hasRemaining()) {
+					channel.write(header);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Buffered reader of the records, computing the checksum of everything it reads.
+	 */
+	private static class Input
+	{
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		private final CRC32 crc = new CRC32();
+		private boolean endOfFile = false;
+
+		private Input(FileChannel channel)
+		{
+			this.channel = channel;
+			buffer.flip();
+		}
+
+		/**
+		 * Make sure the buffer has at least the given number of bytes.
+		 *
+		 * @return boolean false if the file ends before.
+		 */
+		private boolean ensure(int bytes) throws IOException
+		{
+			while (buffer.remaining() < bytes && !endOfFile) {
+				buffer.compact();
+				int start = buffer.position();
+				int read = channel.read(buffer);
+				if (read < 0) {
+					endOfFile = true;
+				} else {
+					crc.update(buffer.array(), start, read);
+				}
+				buffer.flip();
+			}
+			return buffer.remaining() >= bytes;
+		}
+
+		private int readVarint(int recordNumber) throws IOException, MalformedStorageException
+		{
+			int value = 0;
+			for (int shift = 0; shift < 32; shift += 7) {
+				if (!ensure(1)) {
+					throw new MalformedStorageException(recordNumber, "the record is incomplete");
+				}
+				byte b = buffer.get();
+				if (shift == 28 && (b & 0x78) != 0) {
+					break;
+				}
+				value |= (b & 0x7F) << shift;
+				if (b >= 0) {
+					return value;
+				}
+			}
+			throw new MalformedStorageException(recordNumber, "a number is too big");
+		}
+
+		private String readString(int recordNumber) throws IOException, MalformedStorageException
+		{
+			int length = readVarint(recordNumber);
+			if (length > remaining()) {
+				throw new MalformedStorageException(recordNumber, "a string is longer than the rest of the file");
+			}
+			if (length <= buffer.capacity()) {
+				if (!ensure(length)) {
+					throw new MalformedStorageException(recordNumber, "the record is incomplete");
+				}
+				String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+				buffer.position(buffer.position() + length);
+				return value;
+			}
+
+			// Longer than the buffer, read it in pieces
+			byte[] bytes = new byte[length];
+			int copied = 0;
+			while (copied < length) {
+				if (!ensure(1)) {
+					throw new MalformedStorageException(recordNumber, "the record is incomplete");
+				}
+				int count = Math.min(buffer.remaining(), length - copied);
+				buffer.get(bytes, copied, count);
+				copied += count;
+			}
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * Get the number of bytes not read yet, in the buffer and in the file.
+		 */
+		private long remaining() throws IOException
+		{
+			return buffer.remaining() + channel.size() - channel.position();
+		}
+
+		private boolean isAtEnd() throws IOException
+		{
+			return !ensure(1);
+		}
+
+		private long checksum()
+		{
+			return crc.getValue();
+		}
+	}
+
+	/**
+	 * Buffered writer of the records, computing the checksum of everything it writes.
+	 */
+	private static class Output
+	{
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		private final CRC32 crc = new CRC32();
+
+		private Output(FileChannel channel)
+		{
+			this.channel = channel;
+		}
+
+		private void writeVarint(int value) throws IOException
+		{
+			if (buffer.remaining() < 5) {
+				flush();
+			}
+			while ((value & ~0x7F) != 0) {
+				buffer.put((byte) ((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			buffer.put((byte) value);
+		}
+
+		private void writeString(String value) throws IOException
+		{
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarint(bytes.length);
+			if (bytes.length > buffer.remaining()) {
+				flush();
+			}
+			if (bytes.length > buffer.remaining()) {
+				crc.update(bytes, 0, bytes.length);
+				write(ByteBuffer.wrap(bytes));
+			} else {
+				buffer.put(bytes);
+			}
+		}
+
+		private void flush() throws IOException
+		{
+			buffer.flip();
+			crc.update(buffer.array(), 0, buffer.limit());
+			write(buffer);
+			buffer.clear();
+		}
+
+		private void write(ByteBuffer bytes) throws IOException
+		{
+			while (bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+		}
+
+		private long checksum()
+		{
+			return crc.getValue();
+		}
+	}
+}
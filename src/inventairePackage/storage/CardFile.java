@@ -0,0 +1,207 @@
+package inventairePackage.storage;
+
+import inventairePackage.Carte;
+import inventairePackage.LazyCards;
+import inventairePackage.exceptions.InvalidParameterException;
+import inventairePackage.exceptions.MalformedStorageException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Storage file whose cards are read on demand. Each player keeps where his cards are in the file, they are read with a
+ * positioned read the first time they are needed and kept in a cache of the recently used cards. When the cache holds
+ * more cards than its limit, the cards used the longest time ago are dropped and read again if they are needed.
+ *
+ * The file stays open until it is closed, so the cards can still be read after the storage file is replaced by a new
+ * one: the system keeps the old content while it is open. The cards can be read from several threads.
+ */
+public class CardFile implements Closeable
+{
+	private final File file;
+	private final FileChannel channel;
+	private final long maxCachedCards;
+	// In the order of the last use, the oldest first
+	private final LinkedHashMap<Record, ArrayList<Carte>> cache = new LinkedHashMap<Record, ArrayList<Carte>>(16,
+			0.75f, true);
+	private long cachedCards = 0;
+
+	/**
+	 * Constructor, opens the file.
+	 *
+	 * @param file
+	 *            Storage file in the text format.
+	 * @param maxCachedCards
+	 *            Number of cards kept in the cache.
+	 * @throws IOException
+	 */
+	public CardFile(File file, long maxCachedCards) throws IOException
+	{
+		this.file = file;
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		this.maxCachedCards = maxCachedCards;
+	}
+
+	/**
+	 * Get the cards of a record of the file.
+	 *
+	 * @param offset
+	 *            Position of the first card field in the file.
+	 * @param length
+	 *            Number of bytes of the card fields.
+	 * @param size
+	 *            Number of cards.
+	 * @param lineNumber
+	 *            Line of the record, for the errors.
+	 * @return LazyCards The cards, read when they are needed.
+	 */
+	public LazyCards cards(long offset, int length, int size, int lineNumber)
+	{
+		return new Record(offset, length, size, lineNumber);
+	}
+
+	/**
+	 * Get the number of cards in the cache.
+	 *
+	 * @return long Number of cards.
+	 */
+	public long getCachedCards()
+	{
+		synchronized (cache) {
+			return cachedCards;
+		}
+	}
+
+	/**
+	 * Read bytes of the file at a position, without moving the position of the channel.
+	 */
+	int read(ByteBuffer destination, long position) throws IOException
+	{
+		return channel.read(destination, position);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+		synchronized (cache) {
+			cache.clear();
+			cachedCards = 0;
+		}
+	}
+
+	/**
+	 * Get the cards of a record from the cache or read them.
+	 */
+	private ArrayList<Carte> load(Record record)
+	{
+		synchronized (cache) {
+			ArrayList<Carte> cards = cache.get(record);
+			if (cards != null) {
+				return cards;
+			}
+		}
+
+		// Read without the lock, two threads may read the same cards and only one list is kept
+		ArrayList<Carte> cards = read(record);
+		synchronized (cache) {
+			ArrayList<Carte> cached = cache.get(record);
+			if (cached != null) {
+				return cached;
+			}
+			cache.put(record, cards);
+			cachedCards += cards.size();
+			Iterator<Map.Entry<Record, ArrayList<Carte>>> oldest = cache.entrySet().iterator();
+			while (cachedCards > maxCachedCards && cache.size() > 1) {
+				cachedCards -= oldest.next().getValue().size();
+				oldest.remove();
+			}
+		}
+		return cards;
+	}
+
+	/**
+	 * Read and decode the cards of a record.
+	 */
+	private ArrayList<Carte> read(Record record)
+	{
+		try {
+			return readCards(record);
+		} catch (IOException e) {
+			throw new UncheckedIOException(String.format("Failed to read the cards of line %d of '%s'.",
+					record.lineNumber, file.getName()), e);
+		} catch (MalformedStorageException e) {
+			throw new UncheckedIOException(new IOException(e.getMessage(), e));
+		}
+	}
+
+	private ArrayList<Carte> readCards(Record record) throws IOException, MalformedStorageException
+	{
+		ByteBuffer bytes = ByteBuffer.allocate(record.length);
+		while (bytes.hasRemaining()) {
+			if (channel.read(bytes, record.offset + bytes.position()) < 0) {
+				throw new MalformedStorageException(record.lineNumber, "the file ends before the cards");
+			}
+		}
+		bytes.flip();
+
+		StorageTokenizer tokenizer = new StorageTokenizer(StandardCharsets.UTF_8.decode(bytes));
+		ArrayList<Carte> cards = new ArrayList<Carte>(record.size);
+		try {
+			tokenizer.nextRecord();
+			for (int i = 0; i < record.size; ++i) {
+				cards.add(StorageReader.readCardFields(tokenizer, null));
+			}
+		} catch (MalformedStorageException e) {
+			// The tokenizer only saw this record
+			throw new MalformedStorageException(record.lineNumber, e.getReason(), e);
+		} catch (InvalidParameterException e) {
+			throw new MalformedStorageException(record.lineNumber, e);
+		}
+		// Same order as Joueur.addCarte, the sort is stable
+		Collections.sort(cards);
+		return cards;
+	}
+
+	/**
+	 * Where the cards of a player are in the file.
+	 */
+	private class Record implements LazyCards
+	{
+		private final long offset;
+		private final int length;
+		private final int size;
+		private final int lineNumber;
+
+		private Record(long offset, int length, int size, int lineNumber)
+		{
+			this.offset = offset;
+			this.length = length;
+			this.size = size;
+			this.lineNumber = lineNumber;
+		}
+
+		@Override
+		public int size()
+		{
+			return size;
+		}
+
+		@Override
+		public ArrayList<Carte> load()
+		{
+			return CardFile.this.load(this);
+		}
+	}
+}
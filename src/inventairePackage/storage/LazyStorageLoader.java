@@ -0,0 +1,150 @@
+package inventairePackage.storage;
+
+import inventairePackage.Joueur;
+import inventairePackage.exceptions.InvalidParameterException;
+import inventairePackage.exceptions.MalformedStorageException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Load a storage file without its cards. Only the key, the name and the number of cards of each player are decoded,
+ * the players get the position of their cards in the file and read them from the card file when they are needed.
+ *
+ * The file is cut in records at the new lines outside of the quotes, a new line inside a quoted field is part of it,
+ * as for the tokenizer.
+ */
+public class LazyStorageLoader
+{
+	private static final int BUFFER_SIZE = 1024 * 1024;
+	// Fields before the cards: key, name and number of cards
+	private static final int HEADER_FIELDS = 3;
+
+	private final CardFile cardFile;
+	private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	// Line of the record being read and line of the next one, a record can span several lines
+	private int lineNumber = 0;
+	private int nextLineNumber = 1;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param cardFile
+	 *            The storage file to load, it stays open to read the cards.
+	 */
+	public LazyStorageLoader(CardFile cardFile)
+	{
+		this.cardFile = cardFile;
+	}
+
+	/**
+	 * Load all the players of the storage file.
+	 *
+	 * @param consumer
+	 *            Receive the players in the order of the file.
+	 * @throws IOException
+	 * @throws MalformedStorageException
+	 *             The beginning of a record is malformed, the cards are only checked when they are read.
+	 */
+	public void load(PlayerConsumer consumer) throws IOException, MalformedStorageException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		// Position in the file of the first byte of the buffer
+		long bufferStart = 0;
+		int scanned = 0;
+		boolean quoted = false;
+		while (true) {
+			boolean endOfFile = cardFile.read(buffer, bufferStart + buffer.position()) < 0;
+			byte[] bytes = buffer.array();
+			int limit = buffer.position();
+			int lineStart = 0;
+			for (int i = scanned; i < limit; ++i) {
+				if (bytes[i] == '"') {
+					quoted = !quoted;
+				} else if (bytes[i] == '\n' && !quoted) {
+					readLine(bytes, lineStart, i, bufferStart, consumer);
+					lineStart = i + 1;
+				}
+			}
+			if (endOfFile) {
+				if (lineStart < limit) {
+					readLine(bytes, lineStart, limit, bufferStart, consumer);
+				}
+				return;
+			}
+
+			// Keep the incomplete record at the beginning of the buffer, in a bigger buffer if it fills it
+			int remaining = limit - lineStart;
+			if (remaining == buffer.capacity()) {
+				ByteBuffer bigger = ByteBuffer.allocate(buffer.capacity() * 2);
+				bigger.put(bytes, 0, remaining);
+				buffer = bigger;
+			} else {
+				System.arraycopy(bytes, lineStart, bytes, 0, remaining);
+				buffer.clear();
+				buffer.position(remaining);
+			}
+			bufferStart += lineStart;
+			scanned = remaining;
+		}
+	}
+
+	/**
+	 * Read the player of a record, the bytes from start to end (excluded) of the buffer.
+	 */
+	private void readLine(byte[] bytes, int start, int end, long bufferStart, PlayerConsumer consumer)
+			throws IOException,
+				MalformedStorageException
+	{
+		lineNumber = nextLineNumber++;
+		for (int i = start; i < end; ++i) {
+			if (bytes[i] == '\n') {
+				// New line inside a quoted field
+				++nextLineNumber;
+			}
+		}
+
+		// The header ends after the third ';' outside of the quotes, an escaped quote ("") changes nothing
+		int headerEnd = start;
+		int separators = 0;
+		boolean quoted = false;
+		while (headerEnd < end && separators < HEADER_FIELDS) {
+			byte b = bytes[headerEnd++];
+			if (b == '"') {
+				quoted = !quoted;
+			} else if (b == ';' && !quoted) {
+				++separators;
+			}
+		}
+
+		StorageTokenizer tokenizer = new StorageTokenizer(decoder.decode(ByteBuffer.wrap(bytes, start, headerEnd
+				- start)));
+		Joueur player;
+		try {
+			if (!tokenizer.nextRecord()) {
+				// Empty line
+				return;
+			}
+			String cle = tokenizer.nextString();
+			String nomJoueur = tokenizer.nextString();
+			int numberOfCards = tokenizer.nextInt();
+			if (numberOfCards > 0) {
+				player = new Joueur(cle, nomJoueur, cardFile.cards(bufferStart + headerEnd, end - headerEnd,
+						numberOfCards, lineNumber));
+			} else {
+				player = new Joueur(cle, nomJoueur);
+			}
+		} catch (MalformedStorageException e) {
+			// The tokenizer only saw this record
+			throw new MalformedStorageException(lineNumber, e.getReason(), e);
+		} catch (InvalidParameterException e) {
+			throw new MalformedStorageException(lineNumber, e);
+		}
+		consumer.accept(player, lineNumber);
+	}
+}
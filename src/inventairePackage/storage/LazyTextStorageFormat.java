@@ -0,0 +1,67 @@
+package inventairePackage.storage;
+
+import inventairePackage.exceptions.MalformedStorageException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Text format where the cards of the players are read only when they are needed (see CardFile). The files it loaded
+ * stay open until the format is closed.
+ */
+public class LazyTextStorageFormat extends TextStorageFormat implements Closeable
+{
+	public static final long DEFAULT_CACHED_CARDS = 100000;
+
+	private final long maxCachedCards;
+	private final List<CardFile> cardFiles = new ArrayList<CardFile>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxCachedCards
+	 *            Number of cards kept in memory for each file loaded.
+	 */
+	public LazyTextStorageFormat(long maxCachedCards)
+	{
+		this.maxCachedCards = maxCachedCards;
+	}
+
+	@Override
+	public void load(File file, PlayerConsumer consumer) throws IOException, MalformedStorageException
+	{
+		CardFile cardFile = new CardFile(file, maxCachedCards);
+		boolean loaded = false;
+		try {
+			new LazyStorageLoader(cardFile).load(consumer);
+			loaded = true;
+		} finally {
+			if (loaded) {
+				synchronized (cardFiles) {
+					cardFiles.add(cardFile);
+				}
+			} else {
+				cardFile.close();
+			}
+		}
+	}
+
+	/**
+	 * Close the files loaded, the cards not read yet can't be read anymore.
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		synchronized (cardFiles) {
+			for (CardFile cardFile : cardFiles) {
+				cardFile.close();
+			}
+			cardFiles.clear();
+		}
+	}
+}
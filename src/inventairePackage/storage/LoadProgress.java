@@ -0,0 +1,89 @@
+package inventairePackage.storage;
+
+import inventairePackage.Joueur;
+import inventairePackage.exceptions.MalformedStorageException;
+import inventairePackage.utils.Logs;
+
+import java.io.File;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Give the players loaded to another consumer and report the progress of the load, instead of logging every record. A
+ * report is logged at INFO every few seconds while the load lasts; the summary is logged at INFO if the load was long
+ * enough to be reported, at FINE otherwise. The clock is only read every few thousand records.
+ */
+public class LoadProgress implements PlayerConsumer
+{
+	private static final long REPORT_PERIOD_NANOS = 5000000000L;
+	// Records between two reads of the clock, minus 1 (a power of 2)
+	private static final int CLOCK_MASK = 4096 - 1;
+
+	private final Logger logger;
+	private final File file;
+	private final PlayerConsumer consumer;
+	private final long start = System.nanoTime();
+	private long nextReport = start + REPORT_PERIOD_NANOS;
+	private long records = 0;
+	private boolean reported = false;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param logger
+	 *            Logger of the reports.
+	 * @param file
+	 *            File loaded.
+	 * @param consumer
+	 *            Receive the players.
+	 */
+	public LoadProgress(Logger logger, File file, PlayerConsumer consumer)
+	{
+		this.logger = logger;
+		this.file = file;
+		this.consumer = consumer;
+	}
+
+	@Override
+	public void accept(Joueur player, int lineNumber) throws MalformedStorageException
+	{
+		consumer.accept(player, lineNumber);
+		++records;
+		if ((records & CLOCK_MASK) == 0) {
+			long now = System.nanoTime();
+			if (now >= nextReport) {
+				nextReport = now + REPORT_PERIOD_NANOS;
+				reported = true;
+				if (logger.isLoggable(Level.INFO)) {
+					double seconds = (now - start) / 1e9;
+					Logs.log(logger, Level.INFO, "Loading '%s': %d players in %.1f s (%.0f players/s).", file
+							.getName(), records, seconds, records / seconds);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the number of players loaded.
+	 *
+	 * @return long Number of players.
+	 */
+	public long getRecords()
+	{
+		return records;
+	}
+
+	/**
+	 * Log the summary of the load, once it is done.
+	 */
+	public void finish()
+	{
+		Level level = reported ? Level.INFO : Level.FINE;
+		if (logger.isLoggable(level)) {
+			double seconds = Math.max(1, System.nanoTime() - start) / 1e9;
+			long bytes = file.length();
+			Logs.log(logger, level, "Loaded '%s': %d players, %d bytes in %.2f s (%.0f players/s, %.1f MB/s).", file
+					.getName(), records, bytes, seconds, records / seconds, bytes / seconds / (1024 * 1024));
+		}
+	}
+}
@@ -0,0 +1,317 @@
+package inventairePackage.storage;
+
+import inventairePackage.Joueur;
+import inventairePackage.exceptions.MalformedStorageException;
+import inventairePackage.utils.StringDictionary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Load a storage file by memory mapping it and parsing chunks of it in parallel. The chunks are split at the end of a
+ * record: a new line outside of the quotes. A quoted field can contain a new line, so the quotes before every split
+ * are counted first, in parallel as well, to know if the split falls inside a field.
+ *
+ * The players are given to the consumer in the order of the file with the line of their record, exactly like when
+ * the file is read sequentially, and the first error of the file is the one reported.
+ */
+public class ParallelStorageLoader
+{
+	// Files smaller than this are read sequentially, splitting them costs more than it saves
+	private static final long PARALLEL_THRESHOLD = 8L * 1024 * 1024;
+	private static final long MIN_CHUNK_SIZE = 1024L * 1024;
+	private static final long MAX_CHUNK_SIZE = 256L * 1024 * 1024;
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructor using the common ForkJoinPool.
+	 */
+	public ParallelStorageLoader()
+	{
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param pool
+	 *            Pool used to parse the chunks.
+	 */
+	public ParallelStorageLoader(ForkJoinPool pool)
+	{
+		this.pool = pool;
+	}
+
+	/**
+	 * Load all the players of a storage file.
+	 *
+	 * @param file
+	 *            Storage file.
+	 * @param consumer
+	 *            Receive the players in the order of the file.
+	 * @throws IOException
+	 * @throws MalformedStorageException
+	 *             The first malformed record of the file.
+	 */
+	public void load(File file, PlayerConsumer consumer) throws IOException, MalformedStorageException
+	{
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < PARALLEL_THRESHOLD || pool.getParallelism() < 2) {
+				loadSequentially(channel, consumer);
+			} else {
+				loadInParallel(channel, size, consumer);
+			}
+		}
+	}
+
+	/**
+	 * Read the whole file with one tokenizer.
+	 */
+	private void loadSequentially(FileChannel channel, PlayerConsumer consumer)
+			throws IOException,
+				MalformedStorageException
+	{
+		Reader reader = new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8);
+		StorageReader storageReader = new StorageReader(new StorageTokenizer(reader));
+		Joueur player;
+		while ((player = storageReader.readPlayer()) != null) {
+			consumer.accept(player, storageReader.getRecordLineNumber());
+		}
+	}
+
+	/**
+	 * Split the file in chunks, parse them in parallel and give the players to the consumer in order.
+	 */
+	private void loadInParallel(FileChannel channel, long size, PlayerConsumer consumer)
+			throws IOException,
+				MalformedStorageException
+	{
+		long chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, size / (pool.getParallelism() * 4L)));
+		boolean[] quotedAt = findQuotedSplits(channel, size, chunkSize);
+		// The chunks share the titles and team names of their cards like a sequential load
+		StringDictionary dictionary = new StringDictionary();
+
+		List<ChunkTask> tasks = new ArrayList<ChunkTask>();
+		long start = 0;
+		while (start < size) {
+			// The chunk ends at the first end of record after the split, or after its start if a field was longer
+			long split = (start / chunkSize + 1) * chunkSize;
+			long end = split < size ? findEndOfRecord(channel, split, size, quotedAt[(int) (split / chunkSize)])
+					: size;
+			ChunkTask task = new ChunkTask(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start),
+					dictionary);
+			tasks.add(task);
+			pool.execute(task);
+			start = end;
+		}
+
+		// Merge in the order of the file, lines are numbered from the lines of the previous chunks
+		int linesBefore = 0;
+		int merged = 0;
+		try {
+			for (; merged < tasks.size(); ++merged) {
+				ChunkResult result = tasks.get(merged).join();
+				for (int j = 0; j < result.players.size(); ++j) {
+					consumer.accept(result.players.get(j), linesBefore + result.lineNumbers[j]);
+				}
+				if (result.hasError()) {
+					throw result.error(linesBefore);
+				}
+				linesBefore += result.lineCount;
+			}
+		} finally {
+			// Stop parsing the chunks after an error
+			for (int i = merged + 1; i < tasks.size(); ++i) {
+				tasks.get(i).cancel(false);
+			}
+		}
+	}
+
+	/**
+	 * Find if every split of the file, at a multiple of the chunk size, is inside a quoted field, by counting the
+	 * quotes of every part of the file in parallel. An escaped quote ("") counts twice and changes nothing.
+	 *
+	 * @return boolean[] For every split, by its number, true if an odd number of quotes comes before it.
+	 */
+	private boolean[] findQuotedSplits(FileChannel channel, long size, long chunkSize) throws IOException
+	{
+		List<QuoteTask> tasks = new ArrayList<QuoteTask>();
+		for (long start = 0; start < size; start += chunkSize) {
+			QuoteTask task = new QuoteTask(channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(chunkSize, size
+					- start)));
+			tasks.add(task);
+			pool.execute(task);
+		}
+		boolean[] quotedAt = new boolean[tasks.size() + 1];
+		for (int i = 0; i < tasks.size(); ++i) {
+			quotedAt[i + 1] = quotedAt[i] ^ tasks.get(i).join();
+		}
+		return quotedAt;
+	}
+
+	/**
+	 * Find the position just after the first new line outside of the quotes at or after a position.
+	 *
+	 * @param quoted
+	 *            true if the position is inside a quoted field.
+	 * @return long Position after the new line or the size of the file if there is none.
+	 */
+	private static long findEndOfRecord(FileChannel channel, long from, long size, boolean quoted) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(8 * 1024);
+		long position = from;
+		while (position < size) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; ++i) {
+				byte b = buffer.get(i);
+				if (b == '"') {
+					quoted = !quoted;
+				} else if (b == '\n' && !quoted) {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return size;
+	}
+
+	/**
+	 * Players parsed from a chunk of the file.
+	 */
+	private static class ChunkResult
+	{
+		private final List<Joueur> players = new ArrayList<Joueur>();
+		private int[] lineNumbers = new int[16];
+		private int lineCount;
+		private MalformedStorageException error;
+		private IOException ioError;
+
+		private void add(Joueur player, int lineNumber)
+		{
+			if (players.size() == lineNumbers.length) {
+				lineNumbers = Arrays.copyOf(lineNumbers, lineNumbers.length * 2);
+			}
+			lineNumbers[players.size()] = lineNumber;
+			players.add(player);
+		}
+
+		private boolean hasError()
+		{
+			return error != null || ioError != null;
+		}
+
+		/**
+		 * Error of the chunk with the line number in the whole file.
+		 */
+		private MalformedStorageException error(int linesBefore) throws IOException
+		{
+			if (ioError != null) {
+				throw ioError;
+			}
+			return new MalformedStorageException(linesBefore + error.getLineNumber(), error.getReason(), error.getCause());
+		}
+	}
+
+	/**
+	 * Count the quotes of a part of the file.
+	 */
+	private static class QuoteTask extends RecursiveTask<Boolean>
+	{
+		private static final long serialVersionUID = -2809345061475813764L;
+
+		private final transient MappedByteBuffer bytes;
+
+		private QuoteTask(MappedByteBuffer bytes)
+		{
+			this.bytes = bytes;
+		}
+
+		/**
+		 * @return Boolean true if the number of quotes is odd.
+		 */
+		@Override
+		protected Boolean compute()
+		{
+			boolean odd = false;
+			for (int i = 0, limit = bytes.limit(); i < limit; ++i) {
+				if (bytes.get(i) == '"') {
+					odd = !odd;
+				}
+			}
+			return odd;
+		}
+	}
+
+	/**
+	 * Decode and parse one chunk of the file.
+	 */
+	private static class ChunkTask extends RecursiveTask<ChunkResult>
+	{
+		private static final long serialVersionUID = 6187604318204829455L;
+
+		private final transient MappedByteBuffer bytes;
+		private final transient StringDictionary dictionary;
+
+		private ChunkTask(MappedByteBuffer bytes, StringDictionary dictionary)
+		{
+			this.bytes = bytes;
+			this.dictionary = dictionary;
+		}
+
+		@Override
+		protected ChunkResult compute()
+		{
+			ChunkResult result = new ChunkResult();
+			StorageTokenizer tokenizer;
+			try {
+				CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+						.onMalformedInput(CodingErrorAction.REPLACE)
+						.onUnmappableCharacter(CodingErrorAction.REPLACE);
+				CharBuffer chars = decoder.decode(bytes);
+				tokenizer = new StorageTokenizer(chars);
+			} catch (CharacterCodingException e) {
+				result.ioError = e;
+				return result;
+			}
+
+			StorageReader storageReader = new StorageReader(tokenizer, dictionary);
+			try {
+				Joueur player;
+				while ((player = storageReader.readPlayer()) != null) {
+					result.add(player, storageReader.getRecordLineNumber());
+				}
+			} catch (MalformedStorageException e) {
+				result.error = e;
+			} catch (IOException e) {
+				result.ioError = e;
+			}
+
+			// Each chunk but the last ends with a new line, so this is the number of lines of the chunk
+			result.lineCount = tokenizer.getLineNumber() - 1;
+			return result;
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package inventairePackage.storage;
+
+import inventairePackage.Joueur;
+import inventairePackage.exceptions.MalformedStorageException;
+
+/**
+ * Receive the players read from a storage.
+ */
+public interface PlayerConsumer
+{
+	/**
+	 * Receive a player.
+	 *
+	 * @param player
+	 *            Player read.
+	 * @param lineNumber
+	 *            Line of the record of the player (or its position in the storage), starting at 1.
+	 * @throws MalformedStorageException
+	 *             The player can't be accepted, loading stops.
+	 */
+	void accept(Joueur player, int lineNumber) throws MalformedStorageException;
+}
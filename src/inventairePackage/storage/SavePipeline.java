@@ -0,0 +1,155 @@
+package inventairePackage.storage;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run the saves of an inventory one at a time on a background thread. The saves asked while another save is waiting
+ * to start are merged with it: a burst of requests gives one write, done after the last request.
+ */
+public class SavePipeline
+{
+	/**
+	 * Write the inventory to the disk.
+	 */
+	public interface Saver
+	{
+		/**
+		 * Save everything that was changed before the call.
+		 *
+		 * @throws IOException
+		 */
+		void save() throws IOException;
+	}
+
+	private final Saver saver;
+	private final ExecutorService writer;
+	// Save asked but not started yet, the next requests join it
+	private CompletableFuture<Void> pending;
+	private CompletableFuture<Void> last;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param name
+	 *            Name of the background thread.
+	 * @param saver
+	 *            Do the saves.
+	 */
+	public SavePipeline(final String name, Saver saver)
+	{
+		this.saver = saver;
+		this.writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, name);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Ask for a save.
+	 *
+	 * @return CompletableFuture<Void> Completed once the changes made before the request are saved, or with the error of
+	 *         the save.
+	 */
+	public synchronized CompletableFuture<Void> request()
+	{
+		if (pending == null) {
+			final CompletableFuture<Void> save = new CompletableFuture<Void>();
+			try {
+				writer.execute(new Runnable() {
+					@Override
+					public void run()
+					{
+						runSave();
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				save.completeExceptionally(new IOException("The saves are stopped.", e));
+				return save;
+			}
+			pending = save;
+		}
+		last = pending;
+		return pending;
+	}
+
+	/**
+	 * Wait for the last save asked to be done.
+	 *
+	 * @throws IOException
+	 *             The last save failed or the wait was interrupted.
+	 */
+	public void awaitLast() throws IOException
+	{
+		CompletableFuture<Void> save;
+		synchronized (this) {
+			save = last;
+		}
+		if (save != null) {
+			await(save);
+		}
+	}
+
+	/**
+	 * Wait for a save to be done.
+	 *
+	 * @param save
+	 *            A save given by request.
+	 * @throws IOException
+	 *             The save failed or the wait was interrupted.
+	 */
+	public static void await(CompletableFuture<Void> save) throws IOException
+	{
+		try {
+			save.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the save.");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Finish the saves already asked and stop the background thread. The next requests fail.
+	 */
+	public void close()
+	{
+		writer.shutdown();
+		try {
+			writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void runSave()
+	{
+		CompletableFuture<Void> save;
+		synchronized (this) {
+			save = pending;
+			pending = null;
+		}
+		try {
+			saver.save();
+			save.complete(null);
+		} catch (IOException | RuntimeException e) {
+			save.completeExceptionally(e);
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package inventairePackage.storage;
+
+import inventairePackage.Joueur;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Write the players to a storage file without ever leaving it half written. The players are written to a temporary
+ * file in the same directory, forced to the disk and then moved over the storage file in one atomic operation. If
+ * anything fails, the previous storage file is left as it was.
+ */
+public class SnapshotWriter
+{
+	/**
+	 * Write the content of a storage file.
+	 */
+	public interface Content
+	{
+		/**
+		 * Write the whole content to the channel of the temporary file.
+		 *
+		 * @param channel
+		 *            Channel opened on the empty temporary file.
+		 * @throws IOException
+		 */
+		void writeTo(FileChannel channel) throws IOException;
+	}
+
+	private static final int BUFFER_SIZE = 1024 * 1024;
+
+	/**
+	 * Write the players to a storage file in the text format.
+	 *
+	 * @param file
+	 *            Storage file to replace.
+	 * @param players
+	 *            Players to write, in this order.
+	 * @throws IOException
+	 *             The storage file was not replaced.
+	 */
+	public static void write(File file, final List<Joueur> players) throws IOException
+	{
+		write(file, new Content() {
+			@Override
+			public void writeTo(FileChannel channel) throws IOException
+			{
+				writePlayers(channel, players);
+			}
+		});
+	}
+
+	/**
+	 * Replace a storage file with a new content.
+	 *
+	 * @param file
+	 *            Storage file to replace.
+	 * @param content
+	 *            Write the new content.
+	 * @throws IOException
+	 *             The storage file was not replaced.
+	 */
+	public static void write(File file, Content content) throws IOException
+	{
+		Path target = file.getAbsoluteFile().toPath();
+		Path directory = target.getParent();
+		Path temporary = directory.resolve(target.getFileName() + "." + Long.toHexString(System.nanoTime()) + ".tmp");
+		boolean moved = false;
+		try {
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW,
+					StandardOpenOption.WRITE)) {
+				content.writeTo(channel);
+				channel.force(true);
+			}
+			copyPermissions(target, temporary);
+			move(temporary, target);
+			moved = true;
+			syncDirectory(directory);
+		} finally {
+			if (!moved) {
+				Files.deleteIfExists(temporary);
+			}
+		}
+	}
+
+	/**
+	 * Encode the players in large blocks and write the blocks to the channel. The players are written straight into the
+	 * block, so no string is created for them.
+	 */
+	private static void writePlayers(FileChannel channel, List<Joueur> players) throws IOException
+	{
+		CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+		ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		StringBuilder chars = new StringBuilder(BUFFER_SIZE / 2);
+		for (Joueur player : players) {
+			player.appendCSVEntry(chars);
+			chars.append('\n');
+			if (chars.length() >= BUFFER_SIZE / 2) {
+				encode(channel, encoder, chars, bytes, false);
+			}
+		}
+		encode(channel, encoder, chars, bytes, true);
+		while (encoder.flush(bytes).isOverflow()) {
+			writeBlock(channel, bytes);
+		}
+		writeBlock(channel, bytes);
+	}
+
+	/**
+	 * Write the content of the byte buffer to the channel and empty it.
+	 */
+	private static void writeBlock(FileChannel channel, ByteBuffer bytes) throws IOException
+	{
+		bytes.flip();
+		while (bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+		bytes.clear();
+	}
+
+	/**
+	 * Encode the characters into the byte buffer, writing the buffer to the channel every time it is full.
+	 */
+	private static void encode(FileChannel channel, CharsetEncoder encoder, StringBuilder chars, ByteBuffer bytes,
+			boolean endOfInput) throws IOException
+	{
+		CharBuffer input = CharBuffer.wrap(chars);
+		while (true) {
+			CoderResult result = encoder.encode(input, bytes, endOfInput);
+			if (result.isOverflow()) {
+				writeBlock(channel, bytes);
+			} else if (result.isError()) {
+				result.throwException();
+			} else {
+				break;
+			}
+		}
+
+		// A surrogate pair cut at the end of the block stays for the next block
+		chars.delete(0, input.position());
+	}
+
+	/**
+	 * Give the new file the permissions of the file it replaces.
+	 */
+	private static void copyPermissions(Path target, Path temporary) throws IOException
+	{
+		if (!Files.exists(target)) {
+			return;
+		}
+		try {
+			Files.setPosixFilePermissions(temporary, Files.getPosixFilePermissions(target));
+		} catch (UnsupportedOperationException e) {
+			// Not a POSIX file system, the new file keeps the default permissions
+		}
+	}
+
+	/**
+	 * Replace the target with the temporary file, atomically if the file system allows it.
+	 */
+	private static void move(Path temporary, Path target) throws IOException
+	{
+		try {
+			Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Force the rename to the disk. Some systems can't open a directory, the rename is then left to them.
+	 */
+	private static void syncDirectory(Path directory)
+	{
+		try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (IOException e) {
+			// Not supported on this system
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package inventairePackage.storage;
+
+import inventairePackage.Joueur;
+import inventairePackage.exceptions.MalformedStorageException;
+import inventairePackage.exceptions.MissingParameterException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Convert a storage file from one format to another, the formats are found with the extensions of the files.
+ */
+public class StorageConverter
+{
+	/**
+	 * Convert a storage file.
+	 *
+	 * @param source
+	 *            File to read.
+	 * @param destination
+	 *            File to write, replaced if it exists.
+	 * @return int Number of players converted.
+	 * @throws IOException
+	 * @throws MalformedStorageException
+	 *             The source file is malformed.
+	 */
+	public static int convert(File source, File destination) throws IOException, MalformedStorageException
+	{
+		StorageFormat sourceFormat = formatOf(source);
+		StorageFormat destinationFormat = formatOf(destination);
+
+		final List<Joueur> players = new ArrayList<Joueur>();
+		sourceFormat.load(source, new PlayerConsumer() {
+			@Override
+			public void accept(Joueur player, int lineNumber)
+			{
+				players.add(player);
+			}
+		});
+		destinationFormat.save(destination, players);
+		return players.size();
+	}
+
+	private static StorageFormat formatOf(File file) throws IOException
+	{
+		StorageFormat format = StorageFormats.fromFileName(file.getName());
+		if (format == null) {
+			throw new IOException(String.format("The format of file '%s' is unknown, use %s or %s.", file.getName(),
+					TextStorageFormat.EXTENSION, BinaryStorageFormat.EXTENSION));
+		}
+		return format;
+	}
+
+	/**
+	 * Main function.
+	 *
+	 * @param args
+	 *            Program arguments (source file, destination file)
+	 * @throws MissingParameterException
+	 *             The files were not given.
+	 * @throws IOException
+	 * @throws MalformedStorageException
+	 */
+	public static void main(String[] args) throws MissingParameterException, IOException, MalformedStorageException
+	{
+		if (args.length < 2) {
+			throw new MissingParameterException("files", "you must provide the file to convert and the file to create.");
+		}
+		int count = convert(new File(args[0]), new File(args[1]));
+		System.out.println(count + " joueurs convertis de " + args[0] + " vers " + args[1] + ".");
+	}
+}
@@ -0,0 +1,46 @@
+package inventairePackage.storage;
+
+import inventairePackage.Joueur;
+import inventairePackage.exceptions.MalformedStorageException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Format of a storage file.
+ */
+public interface StorageFormat
+{
+	/**
+	 * Get the extension of the files in this format.
+	 *
+	 * @return String Extension with the dot (".txt").
+	 */
+	String getExtension();
+
+	/**
+	 * Read all the players of a storage file.
+	 *
+	 * @param file
+	 *            Storage file.
+	 * @param consumer
+	 *            Receive the players in the order of the file.
+	 * @throws IOException
+	 * @throws MalformedStorageException
+	 *             The storage file is malformed.
+	 */
+	void load(File file, PlayerConsumer consumer) throws IOException, MalformedStorageException;
+
+	/**
+	 * Replace a storage file with the given players.
+	 *
+	 * @param file
+	 *            Storage file.
+	 * @param players
+	 *            Players to write, in this order.
+	 * @throws IOException
+	 *             The storage file was not replaced.
+	 */
+	void save(File file, List<Joueur> players) throws IOException;
+}
@@ -0,0 +1,25 @@
+package inventairePackage.storage;
+
+/**
+ * Find the format of a storage file.
+ */
+public class StorageFormats
+{
+	/**
+	 * Get the format matching the extension of a file name.
+	 *
+	 * @param fileName
+	 *            Name of the file.
+	 * @return StorageFormat The format or null if the extension is not known.
+	 */
+	public static StorageFormat fromFileName(String fileName)
+	{
+		String lowerCaseName = fileName.toLowerCase();
+		if (lowerCaseName.endsWith(TextStorageFormat.EXTENSION)) {
+			return new TextStorageFormat();
+		} else if (lowerCaseName.endsWith(BinaryStorageFormat.EXTENSION)) {
+			return new BinaryStorageFormat();
+		}
+		return null;
+	}
+}
@@ -0,0 +1,406 @@
+package inventairePackage.storage;
+
+import inventairePackage.Joueur;
+import inventairePackage.exceptions.InvalidParameterException;
+import inventairePackage.exceptions.MalformedStorageException;
+import inventairePackage.utils.Logs;
+import inventairePackage.utils.QuotedFields;
+import inventairePackage.utils.StringDictionary;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Append-only journal of the changes made to the inventory since the storage file was last written. It is kept next to
+ * the storage file (name of the storage file + ".journal").
+ *
+ * Every operation records the state of the player after it (or only his key for a deletion), so replaying the journal
+ * twice on the same storage gives the same inventory. When the journal is compacted, it is first renamed to
+ * ".journal.old" and only deleted once the new storage file is written, both are replayed when the inventory is
+ * loaded.
+ *
+ * The operations can be logged from several threads, each record is written whole under a ReentrantLock.
+ */
+public class StorageJournal
+{
+	/**
+	 * Receive the operations replayed from the journal.
+	 */
+	public interface Replayer
+	{
+		/**
+		 * A player was added or changed, this is his new state.
+		 *
+		 * @param player
+		 *            The player with all his cards.
+		 */
+		void put(Joueur player);
+
+		/**
+		 * A player was deleted.
+		 *
+		 * @param cle
+		 *            Key of the player.
+		 */
+		void delete(String cle);
+	}
+
+	private static final String ADD = "A";
+	private static final String UPDATE = "U";
+	private static final String ADD_CARDS = "C";
+	private static final String DELETE = "D";
+
+	private static Logger logger = Logger.getLogger("InventoryManager");
+
+	private final File journalFile;
+	private final File rotatedJournalFile;
+	private FileOutputStream output;
+	private Writer writer;
+	private long size;
+	private final StringBuilder record = new StringBuilder(256);
+	private char[] recordChars = new char[256];
+	// Not a monitor: the writes and syncs are made under it, and the server calls them from virtual threads
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param storageFile
+	 *            Storage file the journal belongs to.
+	 */
+	public StorageJournal(File storageFile)
+	{
+		this.journalFile = new File(storageFile.getPath() + ".journal");
+		this.rotatedJournalFile = new File(storageFile.getPath() + ".journal.old");
+	}
+
+	/**
+	 * Open the journal to append operations to it.
+	 *
+	 * @throws IOException
+	 */
+	public void open() throws IOException
+	{
+		lock.lock();
+		try {
+			truncateIncompleteRecord();
+			output = new FileOutputStream(journalFile, true);
+			writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+			size = journalFile.length();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove the end of the journal if the program stopped while a record was written, so the next records don't
+	 * continue it. The replay already ignored it.
+	 */
+	private void truncateIncompleteRecord() throws IOException
+	{
+		if (!journalFile.exists()) {
+			return;
+		}
+
+		try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+			long end = file.length();
+			while (end > 0) {
+				file.seek(end - 1);
+				if (file.read() == '\n') {
+					break;
+				}
+				--end;
+			}
+			if (end < file.length()) {
+				Logs.warning(logger, "Removed an incomplete record at the end of journal '%s'.", journalFile.getName());
+				file.setLength(end);
+			}
+		}
+	}
+
+	/**
+	 * Close the journal.
+	 *
+	 * @throws IOException
+	 */
+	public void close() throws IOException
+	{
+		lock.lock();
+		try {
+			if (writer != null) {
+				writer.close();
+				writer = null;
+				output = null;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Size of the journal.
+	 *
+	 * @return long Number of bytes in the journal.
+	 */
+	public long size()
+	{
+		lock.lock();
+		try {
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Check if a compaction was started and didn't finish.
+	 *
+	 * @return boolean true if there is a rotated journal.
+	 */
+	public boolean hasRotatedJournal()
+	{
+		return rotatedJournalFile.exists();
+	}
+
+	/**
+	 * Record a new player.
+	 *
+	 * @param player
+	 *            The player added.
+	 * @throws IOException
+	 */
+	public void logAdd(Joueur player) throws IOException
+	{
+		append(ADD, player);
+	}
+
+	/**
+	 * Record a change to the information of a player.
+	 *
+	 * @param player
+	 *            The player changed.
+	 * @throws IOException
+	 */
+	public void logUpdate(Joueur player) throws IOException
+	{
+		append(UPDATE, player);
+	}
+
+	/**
+	 * Record new cards for a player.
+	 *
+	 * @param player
+	 *            The player who got the cards.
+	 * @throws IOException
+	 */
+	public void logAddCards(Joueur player) throws IOException
+	{
+		append(ADD_CARDS, player);
+	}
+
+	/**
+	 * Record the deletion of a player.
+	 *
+	 * @param cle
+	 *            Key of the player deleted.
+	 * @throws IOException
+	 */
+	public void logDelete(String cle) throws IOException
+	{
+		append(DELETE, null, cle);
+	}
+
+	/**
+	 * Write an operation to the journal and give it to the system, so it is not lost if the program crashes.
+	 */
+	private void append(String operation, Joueur player) throws IOException
+	{
+		append(operation, player, null);
+	}
+
+	/**
+	 * Write a record with the player, or only with the key when there is no player. The record is built in the same
+	 * buffer every time.
+	 */
+	private void append(String operation, Joueur player, String cle) throws IOException
+	{
+		lock.lock();
+		try {
+			if (writer == null) {
+				throw new IOException(String.format("Journal '%s' is closed.", journalFile.getName()));
+			}
+			record.setLength(0);
+			QuotedFields.appendQuoted(record, operation);
+			if (player != null) {
+				player.appendCSVEntry(record);
+			} else {
+				QuotedFields.appendQuoted(record, cle);
+			}
+			record.append('\n');
+			if (recordChars.length < record.length()) {
+				recordChars = new char[record.length() * 2];
+			}
+			record.getChars(0, record.length(), recordChars, 0);
+			writer.write(recordChars, 0, record.length());
+			writer.flush();
+			size += utf8Length(record);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Count the bytes of the characters in UTF-8, without encoding them.
+	 */
+	private static long utf8Length(CharSequence chars)
+	{
+		long length = 0;
+		for (int i = 0; i < chars.length(); ++i) {
+			char c = chars.charAt(i);
+			if (c < 0x80) {
+				++length;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < chars.length()
+					&& Character.isLowSurrogate(chars.charAt(i + 1))) {
+				length += 4;
+				++i;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Force the operations written to the journal to the disk.
+	 *
+	 * @throws IOException
+	 */
+	public void sync() throws IOException
+	{
+		lock.lock();
+		try {
+			if (writer != null) {
+				writer.flush();
+				output.getFD().sync();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Start a compaction: the current journal is put aside and a new empty one is opened. The operations of the rotated
+	 * journal must be in the snapshot written afterward.
+	 *
+	 * @throws IOException
+	 *             A rotated journal already exists or the journal couldn't be renamed.
+	 */
+	public void rotate() throws IOException
+	{
+		lock.lock();
+		try {
+			if (rotatedJournalFile.exists()) {
+				throw new IOException(String.format("Journal '%s' was not compacted yet.",
+						rotatedJournalFile.getName()));
+			}
+			sync();
+			close();
+			if (journalFile.exists() && !journalFile.renameTo(rotatedJournalFile)) {
+				open();
+				throw new IOException(String.format("Failed to rename journal '%s'.", journalFile.getName()));
+			}
+			open();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * End a compaction once the snapshot is safely written: the rotated journal is not needed anymore.
+	 *
+	 * @throws IOException
+	 */
+	public void deleteRotatedJournal() throws IOException
+	{
+		if (rotatedJournalFile.exists() && !rotatedJournalFile.delete()) {
+			throw new IOException(String.format("Failed to delete journal '%s'.", rotatedJournalFile.getName()));
+		}
+	}
+
+	/**
+	 * Replay the rotated journal and then the current journal.
+	 *
+	 * @param replayer
+	 *            Receive the operations in the order they were made.
+	 * @throws IOException
+	 * @throws MalformedStorageException
+	 *             The journal is malformed (the last record is ignored if it was cut by a crash).
+	 */
+	public void replay(Replayer replayer) throws IOException, MalformedStorageException
+	{
+		replay(rotatedJournalFile, replayer);
+		replay(journalFile, replayer);
+	}
+
+	private static void replay(File file, Replayer replayer) throws IOException, MalformedStorageException
+	{
+		if (!file.exists()) {
+			return;
+		}
+
+		try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+			StorageTokenizer tokenizer = new StorageTokenizer(reader);
+			// The cards of the replay share their values, like the cards of a load
+			StringDictionary dictionary = new StringDictionary();
+			while (tokenizer.nextRecord()) {
+				try {
+					String operation = tokenizer.nextString();
+					if (DELETE.equals(operation)) {
+						replayer.delete(tokenizer.nextString());
+					} else if (ADD.equals(operation) || UPDATE.equals(operation) || ADD_CARDS.equals(operation)) {
+						replayer.put(StorageReader.readPlayerFields(tokenizer, dictionary));
+					} else {
+						throw new MalformedStorageException(tokenizer.getRecordLineNumber(), "unknown operation "
+								+ operation);
+					}
+				} catch (MalformedStorageException | InvalidParameterException e) {
+					if (isLastRecord(tokenizer)) {
+						Logs.warning(logger, "Ignored the last record of journal '%s', it is incomplete.", file
+								.getName());
+						return;
+					}
+					if (e instanceof MalformedStorageException) {
+						throw (MalformedStorageException) e;
+					}
+					throw new MalformedStorageException(tokenizer.getRecordLineNumber(), e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Check if a record that failed to be read is the last one of the journal, which happens when the program stopped
+	 * while it was written.
+	 */
+	private static boolean isLastRecord(StorageTokenizer tokenizer) throws IOException
+	{
+		try {
+			return !tokenizer.nextRecord();
+		} catch (MalformedStorageException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package inventairePackage.storage;
+
+import inventairePackage.Carte;
+import inventairePackage.Joueur;
+import inventairePackage.exceptions.InvalidParameterException;
+import inventairePackage.exceptions.MalformedStorageException;
+import inventairePackage.utils.StringDictionary;
+
+import java.io.IOException;
+
+/**
+ * Read the players and their cards from the records of the storage format. The titles and team names repeat on many
+ * cards, the cards read by a reader share one instance of each through the dictionary of the reader. The dictionary
+ * only lives as long as the load, so the values of the cards deleted later are not kept.
+ */
+public class StorageReader
+{
+	private final StorageTokenizer tokenizer;
+	private final StringDictionary dictionary;
+
+	/**
+	 * Constructor with a dictionary for the cards of this reader.
+	 *
+	 * @param tokenizer
+	 *            Tokenizer on the storage.
+	 */
+	public StorageReader(StorageTokenizer tokenizer)
+	{
+		this(tokenizer, new StringDictionary());
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param tokenizer
+	 *            Tokenizer on the storage.
+	 * @param dictionary
+	 *            Dictionary shared by the readers of one load, or null to share nothing.
+	 */
+	public StorageReader(StorageTokenizer tokenizer, StringDictionary dictionary)
+	{
+		this.tokenizer = tokenizer;
+		this.dictionary = dictionary;
+	}
+
+	/**
+	 * Read the next player and his cards.
+	 *
+	 * @return Joueur The player or null if there is no more player in the storage.
+	 * @throws IOException
+	 * @throws MalformedStorageException
+	 *             The record is malformed or contains invalid values, the exception has the line of the record.
+	 */
+	public Joueur readPlayer() throws IOException, MalformedStorageException
+	{
+		if (!tokenizer.nextRecord()) {
+			return null;
+		}
+
+		try {
+			return readPlayerFields(tokenizer, dictionary);
+		} catch (InvalidParameterException e) {
+			throw new MalformedStorageException(tokenizer.getRecordLineNumber(), e);
+		}
+	}
+
+	/**
+	 * Read a player and his cards from the fields of the current record, without sharing the values of his cards.
+	 *
+	 * @param tokenizer
+	 *            Tokenizer positioned at the start of the fields of the player.
+	 * @return Joueur The player.
+	 * @throws IOException
+	 * @throws MalformedStorageException
+	 * @throws InvalidParameterException
+	 */
+	public static Joueur readPlayerFields(StorageTokenizer tokenizer)
+			throws IOException,
+				MalformedStorageException,
+				InvalidParameterException
+	{
+		return readPlayerFields(tokenizer, null);
+	}
+
+	/**
+	 * Read a player and his cards from the fields of the current record.
+	 *
+	 * @param tokenizer
+	 *            Tokenizer positioned at the start of the fields of the player.
+	 * @param dictionary
+	 *            Dictionary sharing the titles and team names, or null.
+	 * @return Joueur The player.
+	 * @throws IOException
+	 * @throws MalformedStorageException
+	 * @throws InvalidParameterException
+	 */
+	public static Joueur readPlayerFields(StorageTokenizer tokenizer, StringDictionary dictionary)
+			throws IOException,
+				MalformedStorageException,
+				InvalidParameterException
+	{
+		String cle = tokenizer.nextString();
+		String nomJoueur = tokenizer.nextString();
+		int numberOfCards = tokenizer.nextInt();
+
+		Joueur player = new Joueur(cle, nomJoueur);
+		for (int i = 0; i < numberOfCards; ++i) {
+			player.addCarte(readCardFields(tokenizer, dictionary));
+		}
+		return player;
+	}
+
+	/**
+	 * Read a card from the next fields of the current record.
+	 *
+	 * @param tokenizer
+	 *            Tokenizer positioned at the start of the fields of the card.
+	 * @param dictionary
+	 *            Dictionary sharing the titles and team names, or null.
+	 * @return Carte The card.
+	 * @throws IOException
+	 * @throws MalformedStorageException
+	 * @throws InvalidParameterException
+	 */
+	public static Carte readCardFields(StorageTokenizer tokenizer, StringDictionary dictionary)
+			throws IOException,
+				MalformedStorageException,
+				InvalidParameterException
+	{
+		String cardTitle = tokenizer.nextString(dictionary);
+		String teamName = tokenizer.nextString(dictionary);
+		int cardYear = tokenizer.nextInt();
+		return new Carte(cardTitle, teamName, cardYear);
+	}
+
+	/**
+	 * Get the line where the last record read started.
+	 *
+	 * @return int Line number, starting at 1.
+	 */
+	public int getRecordLineNumber()
+	{
+		return tokenizer.getRecordLineNumber();
+	}
+}
@@ -0,0 +1,426 @@
+package inventairePackage.storage;
+
+import inventairePackage.exceptions.MalformedStorageException;
+import inventairePackage.utils.StringDictionary;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Single pass tokenizer for the storage format. A record is a line of fields, each field is followed by a ';' and can
+ * be surrounded by quotes. Inside a quoted field, a quote is escaped by doubling it ("") and ';' has no special meaning.
+ *
+ * The tokenizer reads directly from its buffer: a field is copied only once into the returned String and numbers are
+ * parsed without creating any String.
+ */
+public class StorageTokenizer
+{
+	private static final int EOF = -1;
+	private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	private static final int CACHE_SIZE = 1024;
+
+	private final Reader reader;
+	private char[] buffer;
+	private int position;
+	private int limit;
+
+	// Start of the token being read, kept in the buffer when it is refilled (-1 if none)
+	private int mark = -1;
+	private StringBuilder scratch = new StringBuilder();
+
+	// Last values read through a dictionary, so a value already seen doesn't create a new String
+	private String[] cache;
+
+	private int lineNumber = 1;
+	private int recordLineNumber = 0;
+	private boolean inRecord = false;
+
+	/**
+	 * Constructor reading from a stream of characters.
+	 *
+	 * @param reader
+	 *            Where to read the storage from.
+	 */
+	public StorageTokenizer(Reader reader)
+	{
+		this.reader = reader;
+		this.buffer = new char[DEFAULT_BUFFER_SIZE];
+		this.position = 0;
+		this.limit = 0;
+	}
+
+	/**
+	 * Constructor reading from characters already in memory.
+	 *
+	 * @param chars
+	 *            Characters to read, from the position to the limit of the buffer.
+	 */
+	public StorageTokenizer(CharBuffer chars)
+	{
+		this.reader = null;
+		if (chars.hasArray()) {
+			this.buffer = chars.array();
+			this.position = chars.arrayOffset() + chars.position();
+			this.limit = chars.arrayOffset() + chars.limit();
+		} else {
+			this.buffer = new char[chars.remaining()];
+			chars.duplicate().get(this.buffer);
+			this.position = 0;
+			this.limit = this.buffer.length;
+		}
+	}
+
+	/**
+	 * Get the line the tokenizer is currently on.
+	 *
+	 * @return int Line number, starting at 1.
+	 */
+	public int getLineNumber()
+	{
+		return lineNumber;
+	}
+
+	/**
+	 * Get the line where the current record started.
+	 *
+	 * @return int Line number, starting at 1.
+	 */
+	public int getRecordLineNumber()
+	{
+		return recordLineNumber;
+	}
+
+	/**
+	 * Move to the next record, skipping what is left of the current one and the empty lines.
+	 *
+	 * @return boolean false if there is no more record.
+	 * @throws IOException
+	 * @throws MalformedStorageException
+	 *             The end of the current record is malformed.
+	 */
+	public boolean nextRecord() throws IOException, MalformedStorageException
+	{
+		if (inRecord) {
+			skipRecord();
+		}
+
+		int c;
+		while ((c = peek()) != EOF) {
+			if (c == '\n') {
+				++position;
+				++lineNumber;
+			} else if (isSpace(c)) {
+				++position;
+			} else {
+				inRecord = true;
+				recordLineNumber = lineNumber;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Check if the current record has more fields.
+	 *
+	 * @return boolean true if there is another field to read.
+	 * @throws IOException
+	 */
+	public boolean hasMoreFields() throws IOException
+	{
+		if (!inRecord) {
+			return false;
+		}
+		skipSpaces();
+		int c = peek();
+		if (c == EOF || c == '\n') {
+			inRecord = false;
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Read the next field as a String.
+	 *
+	 * @return String Content of the field, without the quotes and the surrounding spaces.
+	 * @throws IOException
+	 * @throws MalformedStorageException
+	 *             No more field in the record or the field is malformed.
+	 */
+	public String nextString() throws IOException, MalformedStorageException
+	{
+		return nextString(null);
+	}
+
+	/**
+	 * Read the next field as a String shared through a dictionary. A value read recently is found without creating a
+	 * new String.
+	 *
+	 * @param dictionary
+	 *            Dictionary giving the shared instance of the values, or null to create a new String.
+	 * @return String Content of the field, without the quotes and the surrounding spaces.
+	 * @throws IOException
+	 * @throws MalformedStorageException
+	 *             No more field in the record or the field is malformed.
+	 */
+	public String nextString(StringDictionary dictionary) throws IOException, MalformedStorageException
+	{
+		requireField();
+		String value;
+		if (peek() == '"') {
+			++position;
+			value = readQuoted(dictionary);
+		} else {
+			value = readBare(dictionary);
+		}
+		endField();
+		return value;
+	}
+
+	/**
+	 * Read the next field as an integer, without creating a String.
+	 *
+	 * @return int Value of the field.
+	 * @throws IOException
+	 * @throws MalformedStorageException
+	 *             No more field in the record or the field is not an integer.
+	 */
+	public int nextInt() throws IOException, MalformedStorageException
+	{
+		requireField();
+		boolean quoted = false;
+		if (peek() == '"') {
+			++position;
+			quoted = true;
+			skipSpaces();
+		}
+
+		boolean negative = false;
+		if (peek() == '-') {
+			++position;
+			negative = true;
+		}
+
+		long value = 0;
+		int digits = 0;
+		int c;
+		while ((c = peek()) >= '0' && c <= '9') {
+			value = value * 10 + (c - '0');
+			if (value > (long) Integer.MAX_VALUE + 1) {
+				throw new MalformedStorageException(lineNumber, "number is too big");
+			}
+			++digits;
+			++position;
+		}
+		if (digits == 0) {
+			throw new MalformedStorageException(lineNumber, "expected a number");
+		}
+		value = negative ? -value : value;
+		if (value > Integer.MAX_VALUE) {
+			throw new MalformedStorageException(lineNumber, "number is too big");
+		}
+
+		skipSpaces();
+		if (quoted) {
+			if (peek() != '"') {
+				throw new MalformedStorageException(lineNumber, "expected a number");
+			}
+			++position;
+		}
+		endField();
+		return (int) value;
+	}
+
+	/**
+	 * Skip everything until the end of the current record.
+	 *
+	 * @throws IOException
+	 * @throws MalformedStorageException
+	 *             A quoted field is never closed.
+	 */
+	public void skipRecord() throws IOException, MalformedStorageException
+	{
+		while (hasMoreFields()) {
+			nextString();
+		}
+	}
+
+	/**
+	 * Read a quoted field, the opening quote is already consumed.
+	 */
+	private String readQuoted(StringDictionary dictionary) throws IOException, MalformedStorageException
+	{
+		scratch.setLength(0);
+		boolean escaped = false;
+		mark = position;
+		while (true) {
+			int c = peek();
+			if (c == EOF) {
+				mark = -1;
+				throw new MalformedStorageException(lineNumber, "a quoted field is never closed");
+			}
+			++position;
+			if (c == '\n') {
+				++lineNumber;
+			} else if (c == '"') {
+				// Either the closing quote or an escaped quote (""), peek() can move the buffer so the position of
+				// the quote is only known after it
+				boolean doubled = peek() == '"';
+				int quote = position - 1;
+				if (doubled) {
+					scratch.append(buffer, mark, quote - mark).append('"');
+					escaped = true;
+					++position;
+					mark = position;
+				} else {
+					String value;
+					if (escaped) {
+						value = scratch.append(buffer, mark, quote - mark).toString();
+						value = dictionary == null ? value : dictionary.intern(value);
+					} else {
+						value = toValue(mark, quote - mark, dictionary);
+					}
+					mark = -1;
+					return value;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read a field without quotes, the spaces around it are removed.
+	 */
+	private String readBare(StringDictionary dictionary) throws IOException
+	{
+		mark = position;
+		int c;
+		while ((c = peek()) != EOF && c != ';' && c != '\n') {
+			++position;
+		}
+		int end = position;
+		while (end > mark && isSpace(buffer[end - 1])) {
+			--end;
+		}
+		String value = toValue(mark, end - mark, dictionary);
+		mark = -1;
+		return value;
+	}
+
+	/**
+	 * Get the String of characters of the buffer, from the cache of the dictionary values when possible.
+	 */
+	private String toValue(int start, int length, StringDictionary dictionary)
+	{
+		if (dictionary == null) {
+			return new String(buffer, start, length);
+		}
+
+		int hash = 0;
+		for (int i = start; i < start + length; ++i) {
+			hash = 31 * hash + buffer[i];
+		}
+		if (cache == null) {
+			cache = new String[CACHE_SIZE];
+		}
+		int slot = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+		String cached = cache[slot];
+		if (cached != null && cached.length() == length) {
+			int i = 0;
+			while (i < length && cached.charAt(i) == buffer[start + i]) {
+				++i;
+			}
+			if (i == length) {
+				return cached;
+			}
+		}
+
+		String value = dictionary.intern(new String(buffer, start, length));
+		cache[slot] = value;
+		return value;
+	}
+
+	/**
+	 * Make sure there is a field to read.
+	 */
+	private void requireField() throws IOException, MalformedStorageException
+	{
+		if (!hasMoreFields()) {
+			throw new MalformedStorageException(recordLineNumber, "a field is missing");
+		}
+	}
+
+	/**
+	 * Consume the separator after a field. The last field of a line can omit it.
+	 */
+	private void endField() throws IOException, MalformedStorageException
+	{
+		skipSpaces();
+		int c = peek();
+		if (c == ';') {
+			++position;
+		} else if (c != EOF && c != '\n') {
+			throw new MalformedStorageException(lineNumber, "expected ';' after a field");
+		}
+	}
+
+	private void skipSpaces() throws IOException
+	{
+		int c;
+		while ((c = peek()) != EOF && isSpace(c)) {
+			++position;
+		}
+	}
+
+	private static boolean isSpace(int c)
+	{
+		return c == ' ' || c == '\t' || c == '\r';
+	}
+
+	/**
+	 * Look at the next character without consuming it.
+	 *
+	 * @return int The character or EOF.
+	 */
+	private int peek() throws IOException
+	{
+		if (position == limit && !fill()) {
+			return EOF;
+		}
+		return buffer[position];
+	}
+
+	/**
+	 * Read more characters in the buffer, keeping the token being read.
+	 *
+	 * @return boolean false if there is nothing more to read.
+	 */
+	private boolean fill() throws IOException
+	{
+		if (reader == null) {
+			return false;
+		}
+
+		int keep = mark >= 0 ? mark : position;
+		if (keep > 0) {
+			System.arraycopy(buffer, keep, buffer, 0, limit - keep);
+			limit -= keep;
+			position -= keep;
+			if (mark >= 0) {
+				mark -= keep;
+			}
+		}
+		if (limit == buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+
+		int read = reader.read(buffer, limit, buffer.length - limit);
+		if (read <= 0) {
+			return false;
+		}
+		limit += read;
+		return true;
+	}
+}
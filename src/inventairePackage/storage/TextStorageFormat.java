@@ -0,0 +1,34 @@
+package inventairePackage.storage;
+
+import inventairePackage.Joueur;
+import inventairePackage.exceptions.MalformedStorageException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Text format where each player is a line of quoted fields separated by ';'.
+ */
+public class TextStorageFormat implements StorageFormat
+{
+	public static final String EXTENSION = ".txt";
+
+	@Override
+	public String getExtension()
+	{
+		return EXTENSION;
+	}
+
+	@Override
+	public void load(File file, PlayerConsumer consumer) throws IOException, MalformedStorageException
+	{
+		new ParallelStorageLoader().load(file, consumer);
+	}
+
+	@Override
+	public void save(File file, List<Joueur> players) throws IOException
+	{
+		SnapshotWriter.write(file, players);
+	}
+}
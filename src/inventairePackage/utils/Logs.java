@@ -0,0 +1,127 @@
+package inventairePackage.utils;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Log messages formatted with String.format only when their level is enabled. The arguments are given one by one, not
+ * in an array, so a message whose level is disabled costs a level check and allocates nothing, unless a primitive
+ * argument has to be boxed by the caller.
+ */
+public class Logs
+{
+	/**
+	 * Log a message at the FINE level.
+	 *
+	 * @param logger
+	 *            The logger.
+	 * @param format
+	 *            Format of the message, as in String.format.
+	 * @param arg
+	 *            Argument of the message.
+	 */
+	public static void fine(Logger logger, String format, Object arg)
+	{
+		if (logger.isLoggable(Level.FINE)) {
+			log(logger, Level.FINE, format, arg);
+		}
+	}
+
+	/**
+	 * Log a message at the FINE level.
+	 *
+	 * @param logger
+	 *            The logger.
+	 * @param format
+	 *            Format of the message, as in String.format.
+	 * @param arg1
+	 *            First argument of the message.
+	 * @param arg2
+	 *            Second argument of the message.
+	 */
+	public static void fine(Logger logger, String format, Object arg1, Object arg2)
+	{
+		if (logger.isLoggable(Level.FINE)) {
+			log(logger, Level.FINE, format, arg1, arg2);
+		}
+	}
+
+	/**
+	 * Log a message at the INFO level.
+	 *
+	 * @param logger
+	 *            The logger.
+	 * @param format
+	 *            Format of the message, as in String.format.
+	 * @param arg1
+	 *            First argument of the message.
+	 * @param arg2
+	 *            Second argument of the message.
+	 */
+	public static void info(Logger logger, String format, Object arg1, Object arg2)
+	{
+		if (logger.isLoggable(Level.INFO)) {
+			log(logger, Level.INFO, format, arg1, arg2);
+		}
+	}
+
+	/**
+	 * Log a message at the WARNING level.
+	 *
+	 * @param logger
+	 *            The logger.
+	 * @param format
+	 *            Format of the message, as in String.format.
+	 * @param arg
+	 *            Argument of the message.
+	 */
+	public static void warning(Logger logger, String format, Object arg)
+	{
+		if (logger.isLoggable(Level.WARNING)) {
+			log(logger, Level.WARNING, format, arg);
+		}
+	}
+
+	/**
+	 * Log a message at the WARNING level.
+	 *
+	 * @param logger
+	 *            The logger.
+	 * @param format
+	 *            Format of the message, as in String.format.
+	 * @param arg1
+	 *            First argument of the message.
+	 * @param arg2
+	 *            Second argument of the message.
+	 */
+	public static void warning(Logger logger, String format, Object arg1, Object arg2)
+	{
+		if (logger.isLoggable(Level.WARNING)) {
+			log(logger, Level.WARNING, format, arg1, arg2);
+		}
+	}
+
+	/**
+	 * Log a message with any number of arguments, the caller checked the level.
+	 *
+	 * @param logger
+	 *            The logger.
+	 * @param level
+	 *            Level of the message.
+	 * @param format
+	 *            Format of the message, as in String.format.
+	 * @param args
+	 *            Arguments of the message.
+	 */
+	public static void log(Logger logger, Level level, String format, Object... args)
+	{
+		// The logger would see this class as the source of the message, it is given the caller instead
+		for (StackTraceElement frame : new Throwable().getStackTrace()) {
+			if (!frame.getClassName().equals(Logs.class.getName())) {
+				logger.logp(level, frame.getClassName(), frame.getMethodName(), String.format(format, args));
+				return;
+			}
+		}
+		logger.log(level, String.format(format, args));
+	}
+}
@@ -0,0 +1,86 @@
+package inventairePackage.utils;
+
+import java.io.IOException;
+
+/**
+ * Write the quoted fields of the storage format without creating any object. Every field is put between quotes and
+ * followed by ';', a quote inside a field is doubled. A ';' or a new line inside the quotes is part of the field and
+ * needs no escape.
+ */
+public class QuotedFields
+{
+	/**
+	 * Append a text field.
+	 *
+	 * @param out
+	 *            Where the field is written.
+	 * @param value
+	 *            Content of the field.
+	 * @throws IOException
+	 */
+	public static void appendQuoted(Appendable out, String value) throws IOException
+	{
+		out.append('"');
+		if (value.indexOf('"') < 0) {
+			out.append(value);
+		} else {
+			// Char by char, a Writer would create a string for every part appended
+			for (int i = 0; i < value.length(); ++i) {
+				char c = value.charAt(i);
+				if (c == '"') {
+					out.append('"');
+				}
+				out.append(c);
+			}
+		}
+		out.append('"').append(';');
+	}
+
+	/**
+	 * Append a number field.
+	 *
+	 * @param out
+	 *            Where the field is written.
+	 * @param value
+	 *            Content of the field.
+	 * @throws IOException
+	 */
+	public static void appendQuoted(Appendable out, int value) throws IOException
+	{
+		out.append('"');
+		appendNumber(out, value);
+		out.append('"').append(';');
+	}
+
+	/**
+	 * Append the digits of a number, without the string Integer.toString would create.
+	 *
+	 * @param out
+	 *            Where the number is written.
+	 * @param value
+	 *            The number.
+	 * @throws IOException
+	 */
+	public static void appendNumber(Appendable out, int value) throws IOException
+	{
+		if (out instanceof StringBuilder) {
+			((StringBuilder) out).append(value);
+			return;
+		}
+		// Negative numbers are handled as negative, -Integer.MIN_VALUE doesn't exist
+		if (value < 0) {
+			out.append('-');
+		} else {
+			value = -value;
+		}
+		int divisor = -1;
+		while (value / 10 <= divisor) {
+			divisor *= 10;
+		}
+		while (divisor != 0) {
+			out.append((char) ('0' + value / divisor));
+			value %= divisor;
+			divisor /= 10;
+		}
+	}
+}
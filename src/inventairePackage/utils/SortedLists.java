@@ -0,0 +1,116 @@
+package inventairePackage.utils;
+
+import java.util.Comparator;
+import java.util.List;
+
+public class SortedLists
+{
+	/**
+	 * Insert an element in a sorted list and keep it sorted. The element is placed after the elements that are equal to
+	 * it, so the result is the same as adding it at the end and doing a stable sort.
+	 * 
+	 * @param list
+	 *            Sorted list (must support random access).
+	 * @param element
+	 *            Element to insert.
+	 * @param comparator
+	 *            Comparator used to sort the list.
+	 * @return int Position where the element was inserted.
+	 */
+	public static <T> int insert(List<T> list, T element, Comparator<? super T> comparator)
+	{
+		int position = upperBound(list, element, comparator);
+		list.add(position, element);
+		return position;
+	}
+
+	/**
+	 * Remove an element (the same instance) from a sorted list.
+	 * 
+	 * @param list
+	 *            Sorted list (must support random access).
+	 * @param element
+	 *            Element to remove.
+	 * @param comparator
+	 *            Comparator used to sort the list.
+	 * @return boolean true if the element was found and removed.
+	 */
+	public static <T> boolean remove(List<T> list, T element, Comparator<? super T> comparator)
+	{
+		int position = indexOf(list, element, comparator);
+		if (position < 0) {
+			return false;
+		}
+		list.remove(position);
+		return true;
+	}
+
+	/**
+	 * Find the position of an element (the same instance) in a sorted list.
+	 * 
+	 * @param list
+	 *            Sorted list (must support random access).
+	 * @param element
+	 *            Element to find.
+	 * @param comparator
+	 *            Comparator used to sort the list.
+	 * @return int Position of the element or -1 if it is not in the list.
+	 */
+	public static <T> int indexOf(List<T> list, T element, Comparator<? super T> comparator)
+	{
+		// Only the elements equal to the one we look for need to be checked
+		for (int i = lowerBound(list, element, comparator); i < list.size(); ++i) {
+			T current = list.get(i);
+			if (current == element) {
+				return i;
+			}
+			if (comparator.compare(current, element) != 0) {
+				break;
+			}
+		}
+
+		// The list was not sorted with this comparator, fallback on a full scan
+		for (int i = 0; i < list.size(); ++i) {
+			if (list.get(i) == element) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * First position where the element is not lower than the given one.
+	 */
+	private static <T> int lowerBound(List<T> list, T element, Comparator<? super T> comparator)
+	{
+		int low = 0;
+		int high = list.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (comparator.compare(list.get(middle), element) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * First position where the element is greater than the given one.
+	 */
+	private static <T> int upperBound(List<T> list, T element, Comparator<? super T> comparator)
+	{
+		int low = 0;
+		int high = list.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (comparator.compare(list.get(middle), element) <= 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
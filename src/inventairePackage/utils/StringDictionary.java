@@ -0,0 +1,108 @@
+package inventairePackage.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class StringDictionary
+{
+	private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+	private volatile String[] values = new String[64];
+	private int size = 0;
+
+	/**
+	 * Get the shared instance of a value. Every equal value gives the same instance.
+	 * 
+	 * @param value
+	 *            The value.
+	 * @return String The shared instance, or null if the value is null.
+	 */
+	public String intern(String value)
+	{
+		return value == null ? null : entryOf(value).value;
+	}
+
+	/**
+	 * Get the id of a value, the value is added to the dictionary if needed. Ids start at 0 and follow the order the
+	 * values were added.
+	 * 
+	 * @param value
+	 *            The value.
+	 * @return int Id of the value.
+	 */
+	public int idOf(String value)
+	{
+		return entryOf(value).id;
+	}
+
+	/**
+	 * Get the id of a value without adding it to the dictionary.
+	 * 
+	 * @param value
+	 *            The value.
+	 * @return int Id of the value or -1 if it is not in the dictionary.
+	 */
+	public int findId(String value)
+	{
+		Entry entry = value == null ? null : entries.get(value);
+		return entry == null ? -1 : entry.id;
+	}
+
+	/**
+	 * Get the value of an id.
+	 * 
+	 * @param id
+	 *            Id given by idOf.
+	 * @return String The value.
+	 */
+	public String valueOf(int id)
+	{
+		return values[id];
+	}
+
+	/**
+	 * Get the number of values in the dictionary.
+	 * 
+	 * @return int Number of values.
+	 */
+	public synchronized int size()
+	{
+		return size;
+	}
+
+	private Entry entryOf(String value)
+	{
+		Entry entry = entries.get(value);
+		if (entry != null) {
+			return entry;
+		}
+
+		synchronized (this) {
+			entry = entries.get(value);
+			if (entry == null) {
+				if (size == values.length) {
+					values = Arrays.copyOf(values, size * 2);
+				}
+				values[size] = value;
+				entry = new Entry(value, size);
+				++size;
+				entries.put(value, entry);
+			}
+			return entry;
+		}
+	}
+
+	/**
+	 * Shared instance and id of a value.
+	 */
+	private static class Entry
+	{
+		private final String value;
+		private final int id;
+
+		private Entry(String value, int id)
+		{
+			this.value = value;
+			this.id = id;
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package inventairePackage.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Threads for the tasks that spend their time waiting, like the connections of the server. The virtual threads of Java
+ * 21 are used when the running Java version can create them, they are looked up at runtime so the program still runs on
+ * Java 8.
+ */
+public class Threads
+{
+	// Stack of the platform threads used when there are no virtual threads
+	private static final long PLATFORM_STACK_SIZE = 256 * 1024;
+	// Java 19 and 20 have Thread.ofVirtual as a preview that fails unless enabled, so an executor is really created
+	private static final boolean VIRTUAL_THREADS = canCreateVirtualExecutor();
+
+	/**
+	 * Create an executor that runs every task in a new thread. The threads are virtual threads when the Java version
+	 * has them (21 and after), so a task blocked on I/O doesn't hold a thread of the system. Otherwise they are daemon
+	 * threads with a small stack, reused between tasks.
+	 * 
+	 * @param name
+	 *            Prefix of the names of the threads.
+	 * @return ExecutorService The executor.
+	 */
+	public static ExecutorService newPerTaskExecutor(String name)
+	{
+		if (VIRTUAL_THREADS) {
+			try {
+				return newVirtualExecutor(name);
+			} catch (ReflectiveOperationException e) {
+				// Created once already, not expected
+			}
+		}
+		return Executors.newCachedThreadPool(newPlatformThreadFactory(name));
+	}
+
+	/**
+	 * Check if the executors given by newPerTaskExecutor use virtual threads.
+	 * 
+	 * @return boolean true if an executor of virtual threads could be created.
+	 */
+	public static boolean hasVirtualThreads()
+	{
+		return VIRTUAL_THREADS;
+	}
+
+	private static boolean canCreateVirtualExecutor()
+	{
+		try {
+			newVirtualExecutor("probe").shutdown();
+			return true;
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Create an executor of virtual threads through reflection.
+	 *
+	 * @throws ReflectiveOperationException
+	 *             The Java version has no virtual threads, or they are a preview not enabled.
+	 */
+	private static ExecutorService newVirtualExecutor(String name) throws ReflectiveOperationException
+	{
+		// Thread.ofVirtual().name(name, 1).factory(), looked up at runtime to still run on older versions
+		Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+		Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+		builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+		ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+		return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(
+				null, factory);
+	}
+
+	private static ThreadFactory newPlatformThreadFactory(final String name)
+	{
+		final AtomicLong count = new AtomicLong();
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(null, runnable, name + "-" + count.incrementAndGet(), PLATFORM_STACK_SIZE);
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+}